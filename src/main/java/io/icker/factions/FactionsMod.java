@@ -7,11 +7,13 @@ import io.icker.factions.api.events.ClaimEvents;
 import io.icker.factions.api.events.FactionEvents;
 import io.icker.factions.api.events.MiscEvents;
 import io.icker.factions.api.events.PlayerEvents;
+import io.icker.factions.api.persistents.Bootstrap;
 import io.icker.factions.api.persistents.Claim;
 import io.icker.factions.api.persistents.Faction;
 import io.icker.factions.api.persistents.User;
 import io.icker.factions.command.*;
 import io.icker.factions.config.Config;
+import io.icker.factions.database.WriteBehind;
 import io.icker.factions.core.*;
 import io.icker.factions.util.*;
 import net.fabricmc.api.ModInitializer;
@@ -66,7 +68,7 @@ public class FactionsMod implements ModInitializer {
 
             BlockPos tpos = target.getBlockPos();
             ChunkPos cp   = new ChunkPos(tpos);
-            String  dim   = world.getRegistryKey().getValue().toString();
+            int     dim   = DimensionRegistry.of(world);
 
             Claim claim = Claim.get(cp.x, cp.z, dim);
             if (claim == null) return ActionResult.PASS;
@@ -92,47 +94,20 @@ public class FactionsMod implements ModInitializer {
         });
 
 // Persist whenever any faction is modified (name/desc/MOTD/color/open)
-        FactionEvents.MODIFY.register(faction -> {
-            Faction.save();
-        });
-
-        FactionEvents.POWER_CHANGE.register((faction, oldPower) -> {
-            Faction.save();
-        });
-// Persist whenever *all* claims of a faction are removed (e.g. on disband or removeAllClaims)
-        FactionEvents.REMOVE_ALL_CLAIMS.register(faction -> {
-            Claim.save();
-        });
+        FactionEvents.MODIFY.register(Faction::markDirty);
 
-        FactionEvents.DISBAND.register(faction -> {
-            // The Faction.remove() method already handles:
-            // - Ejecting all members via getUsers().forEach(User::leaveFaction)
-            // - Removing all claims via removeAllClaims()
-            // - Deleting the faction itself
-            // So we only need to persist the changes here
-            User.save();
-            Claim.save();
-            Faction.save();
-        });
-// Initialize legacy users (lastOnline ≤ 0) to now, but preserve existing timestamps
-        long now = System.currentTimeMillis();
-        for (User u : User.all()) {
-            if (u.getLastOnline() <= 0) {
-                u.setLastOnline(now);
-            }
-        }
-        User.save();
+        FactionEvents.POWER_CHANGE.register((faction, oldPower) -> faction.markDirty());
+        // Disbanding needs no handler: Faction.remove() journals the removal itself, and the
+        // members leaving and claims being removed journal their own changes
         LOGGER.info("Initialized Factions Mod");
 
         // Register misc event handlers (join/disconnect + world-save)
         MiscEvents.register();
-        MiscEvents.ON_SAVE.register(server -> {
-            User.save();
-            Faction.save();
-            Claim.save();            // ← persist all per-player grants too
-        });
 
         WorldUtils.register();
+        // after WorldUtils, which the safe's codec needs the server from
+        Bootstrap.register();
+        WriteBehind.register();
 
         dynmap = FabricLoader.getInstance().isModLoaded("dynmap") ? new DynmapWrapper() : null;
         bluemap = FabricLoader.getInstance().isModLoaded("bluemap") ? new BlueMapWrapper() : null;
@@ -146,21 +121,22 @@ public class FactionsMod implements ModInitializer {
         ChatManager.register();
         FactionsManager.register();
         InteractionManager.register();
+        ProtectionCache.register();
         ServerManager.register();
         SoundManager.register();
         WorldManager.register();
         DecayManager.register();
         FactionDisbandManager.register();
-        ClaimEvents.ADD.register(c -> Claim.save());
-        ClaimEvents.MODIFY.register(c -> Claim.save());
-        ClaimEvents.REMOVE.register((x,z,lvl,fac) -> Claim.save());
+        ClaimEvents.ADD.register(Claim::markDirty);
+        ClaimEvents.MODIFY.register(Claim::markDirty);
+        ClaimEvents.REMOVE.register((x,z,lvl,fac) -> Claim.saveRemoval(x, z, lvl));
 
         PlayerEvents.PLACE_BLOCK.register(ctx -> {
             if (!(ctx.getPlayer() instanceof ServerPlayerEntity player)) return ActionResult.PASS;
             if (!(ctx.getWorld() instanceof ServerWorld world)) return ActionResult.PASS;
 
             ChunkPos cp = new ChunkPos(ctx.getBlockPos());
-            String dim = world.getRegistryKey().getValue().toString();
+            int dim = DimensionRegistry.of(world);
             Claim claim = Claim.get(cp.x, cp.z, dim);
 
             // Unclaimed → allow
@@ -211,7 +187,7 @@ public class FactionsMod implements ModInitializer {
             if (!(view instanceof ServerWorld world))              return ActionResult.PASS;
 
             ChunkPos cp = new ChunkPos(pos);
-            String dim  = world.getRegistryKey().getValue().toString();
+            int dim  = DimensionRegistry.of(world);
             Claim claim = Claim.get(cp.x, cp.z, dim);
 
             // Unclaimed → allow
@@ -236,7 +212,7 @@ public class FactionsMod implements ModInitializer {
                 if (!player.isGliding()) continue;
 
                 ChunkPos cp = new ChunkPos(player.getBlockPos());
-                String dim = player.getEntityWorld().getRegistryKey().getValue().toString();
+                int dim = DimensionRegistry.of(player.getEntityWorld());
                 Claim claim = Claim.get(cp.x, cp.z, dim);
 
                 // Skip if no claim or if it's a buffer zone
@@ -263,20 +239,19 @@ public class FactionsMod implements ModInitializer {
                 }
             }
         });     // ← closes the register(...) lambda
-        PlayerEvents.EXPLODE_BLOCK.register((expl, world, pos, state) -> {
-            if (!(world instanceof ServerWorld sw)) return ActionResult.PASS;
-            String dim = sw.getRegistryKey().getValue().toString();
-            // allocate once and reuse:
-            ChunkPos c = new ChunkPos(pos);
-            return Claim.get(c.x, c.z, dim) != null
-                    ? ActionResult.FAIL
-                    : ActionResult.PASS;
+        PlayerEvents.EXPLODE_CHUNKS.register((expl, world, chunks) -> {
+            int dim = DimensionRegistry.of(world);
+            for (int i = 0; i < chunks.size(); i++) {
+                if (Claim.get(chunks.getX(i), chunks.getZ(i), dim) != null) {
+                    chunks.vote(i, ActionResult.FAIL);
+                }
+            }
         });
 
         PlayerEvents.EXPLODE_DAMAGE.register((expl, entity) -> {
             if (!(entity instanceof ServerPlayerEntity p)) return ActionResult.PASS;
             ChunkPos c = new ChunkPos(p.getBlockPos());
-            String dim = p.getEntityWorld().getRegistryKey().getValue().toString();
+            int dim = DimensionRegistry.of(p.getEntityWorld());
             return (Claim.get(c.x, c.z, dim) != null)
                     ? ActionResult.FAIL
                     : ActionResult.PASS;
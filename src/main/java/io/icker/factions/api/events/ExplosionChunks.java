@@ -0,0 +1,69 @@
+package io.icker.factions.api.events;
+
+import net.minecraft.util.ActionResult;
+
+import java.util.Arrays;
+
+/**
+ * A rectangle of chunks an explosion can reach, with one protection vote per chunk. Passed to
+ * {@link PlayerEvents#EXPLODE_CHUNKS} listeners so they can decide once per chunk instead of once
+ * per block.
+ *
+ * <p>Votes follow the same rule as the per-block events: the first listener to return something
+ * other than {@link ActionResult#PASS} for a chunk decides it.
+ */
+public class ExplosionChunks {
+    private final int minX;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeZ;
+    private final ActionResult[] results;
+
+    /** All chunks from {@code (minX, minZ)} to {@code (maxX, maxZ)}, inclusive. */
+    public ExplosionChunks(int minX, int minZ, int maxX, int maxZ) {
+        this.minX = minX;
+        this.minZ = minZ;
+        this.sizeX = maxX - minX + 1;
+        this.sizeZ = maxZ - minZ + 1;
+        this.results = new ActionResult[sizeX * sizeZ];
+        Arrays.fill(results, ActionResult.PASS);
+    }
+
+    public int size() {
+        return results.length;
+    }
+
+    public int getX(int index) {
+        return minX + index / sizeZ;
+    }
+
+    public int getZ(int index) {
+        return minZ + index % sizeZ;
+    }
+
+    public ActionResult getResult(int index) {
+        return results[index];
+    }
+
+    /** Whether a listener has already decided this chunk. */
+    public boolean isDecided(int index) {
+        return results[index] != ActionResult.PASS;
+    }
+
+    /** Records a vote for the chunk; ignored if an earlier listener already decided it. */
+    public void vote(int index, ActionResult result) {
+        if (results[index] == ActionResult.PASS) {
+            results[index] = result;
+        }
+    }
+
+    /**
+     * @return the index of the chunk, or -1 if it is outside this explosion
+     */
+    public int indexOf(int chunkX, int chunkZ) {
+        int x = chunkX - minX;
+        int z = chunkZ - minZ;
+        if (x < 0 || x >= sizeX || z < 0 || z >= sizeZ) return -1;
+        return x * sizeZ + z;
+    }
+}
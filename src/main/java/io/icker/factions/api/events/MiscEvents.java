@@ -43,22 +43,22 @@ public final class MiscEvents {
             User u = User.get(p.getUuid());
             Faction f = (u != null) ? u.getFaction() : null;
 
-            int claimCount = (f == null) ? 0 : f.getClaims().size();
+            int claimCount = (f == null) ? 0 : f.getClaimCount();
             int power      = (f == null) ? 0 : f.getPower();
             int required   = claimCount * FactionsMod.CONFIG.POWER.CLAIM_WEIGHT;
             User user = User.get(handler.getPlayer().getUuid());
+            user.setOnline(true);
             // mark them as “just seen”
             user.setLastOnline(System.currentTimeMillis());
             // NOTE: we no longer reset their drain counter here,
             // so we never try to decrease `powerDrained`
-            User.save();
         });
 
         ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
             User user = User.get(handler.getPlayer().getUuid());
+            user.setOnline(false);
             // record their last-online timestamp
             user.setLastOnline(System.currentTimeMillis());
-            User.save();
         });
     }
 
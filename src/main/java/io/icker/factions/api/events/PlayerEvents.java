@@ -10,6 +10,7 @@ import net.minecraft.entity.damage.DamageSource;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.item.ItemUsageContext;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.ActionResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.BlockView;
@@ -111,6 +112,20 @@ public class PlayerEvents {
                                 return ActionResult.PASS;
                             });
 
+    /**
+     * Called once per explosion with every chunk it can reach, before any blocks are destroyed.
+     * Listeners vote per chunk; chunks left at PASS fall back to {@link #EXPLODE_BLOCK}.
+     */
+    public static final Event<ExplodeChunks> EXPLODE_CHUNKS =
+            EventFactory.createArrayBacked(
+                    ExplodeChunks.class,
+                    callbacks ->
+                            (explosion, world, chunks) -> {
+                                for (ExplodeChunks callback : callbacks) {
+                                    callback.onExplodeChunks(explosion, world, chunks);
+                                }
+                            });
+
     public static final Event<ExplodeDamage> EXPLODE_DAMAGE =
             EventFactory.createArrayBacked(
                     ExplodeDamage.class,
@@ -223,6 +238,11 @@ public class PlayerEvents {
                 Explosion explosion, BlockView world, BlockPos pos, BlockState state);
     }
 
+    @FunctionalInterface
+    public interface ExplodeChunks {
+        void onExplodeChunks(Explosion explosion, ServerWorld world, ExplosionChunks chunks);
+    }
+
     @FunctionalInterface
     public interface ExplodeDamage {
         ActionResult onExplodeDamage(Explosion explosion, Entity entity);
@@ -0,0 +1,71 @@
+package io.icker.factions.api.persistents;
+
+import io.icker.factions.FactionsMod;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Loads the claim, faction and user stores while the server starts, before any world or player
+ * can reach them. The three are read and indexed at the same time, one thread each, since none of
+ * them looks at another while loading. They are loaded once per process, so a singleplayer client
+ * opening another world keeps the stores it already has.
+ */
+public final class Bootstrap {
+    private static boolean loaded;
+
+    private Bootstrap() {}
+
+    public static void register() {
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> load());
+    }
+
+    public static synchronized void load() {
+        if (loaded) return;
+
+        long start = System.nanoTime();
+        ExecutorService pool =
+                Executors.newFixedThreadPool(
+                        3,
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "Factions Loader");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        try {
+            CompletableFuture.allOf(
+                            load(pool, "claims", Claim::load),
+                            load(pool, "factions", Faction::load),
+                            load(pool, "users", User::load))
+                    .join();
+        } finally {
+            pool.shutdown();
+        }
+        loaded = true;
+
+        User.migrateLastOnline();
+        FactionsMod.LOGGER.info(
+                "Loaded factions data in {} ms",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static CompletableFuture<Void> load(
+            ExecutorService pool, String name, IntSupplier store) {
+        return CompletableFuture.runAsync(
+                () -> {
+                    long start = System.nanoTime();
+                    int count = store.getAsInt();
+                    FactionsMod.LOGGER.info(
+                            "Loaded {} {} in {} ms",
+                            count,
+                            name,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                },
+                pool);
+    }
+}
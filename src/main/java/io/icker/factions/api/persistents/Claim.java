@@ -5,16 +5,19 @@ import io.icker.factions.api.persistents.User.Rank;
 import io.icker.factions.database.Database;
 import io.icker.factions.database.Field;
 import io.icker.factions.database.Name;
-import io.icker.factions.util.WorldUtils;
+import io.icker.factions.database.WriteBehind;
+import io.icker.factions.util.ChunkKey;
+import io.icker.factions.util.DimensionRegistry;
+import io.icker.factions.util.LongHashMap;
 import net.minecraft.util.ActionResult;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * A single chunk claim.  Either a “real” claim (in STORE) or a one‑chunk buffer
- * around a real claim (buffer==true, never in STORE).
+ * around a real claim (buffer==true, never in STORE).  The persisted level string is
+ * resolved once to a {@link DimensionRegistry} handle, which is what lookups index by.
  */
 @Name("Claim")
 public class Claim {
@@ -24,9 +27,19 @@ public class Claim {
     public long created;
     /** Only the “paid” chunks that the faction explicitly claimed. */
     public static List<Claim> getPaidByFaction(UUID factionID) {
-        return STORE.values().stream()
-                .filter(c -> c.factionID.equals(factionID))
-                .toList();
+        Set<Claim> paid = BY_FACTION.get(factionID);
+        return paid == null ? new ArrayList<>() : new ArrayList<>(paid);
+    }
+
+    /** Number of paid chunks owned by the faction, without copying them. */
+    public static int countByFaction(UUID factionID) {
+        Set<Claim> paid = BY_FACTION.get(factionID);
+        return paid == null ? 0 : paid.size();
+    }
+
+    /** Number of unpaid chunks in the faction's buffer zone, without building them. */
+    public static int countBufferByFaction(UUID factionID) {
+        return BUFFER_COUNTS.getOrDefault(factionID, 0);
     }
 
     /**
@@ -36,28 +49,69 @@ public class Claim {
      * and only includes those not claimed by another faction.
      */
     public static List<Claim> getBufferByFaction(UUID factionID) {
-        Set<String> paidKeys = getPaidByFaction(factionID).stream()
-                .map(Claim::getKey)
-                .collect(Collectors.toSet());
-        Set<Claim> buffers = new HashSet<>();
+        Map<String, LongHashMap<Claim>> buffers = new HashMap<>();
 
         for (Claim paid : getPaidByFaction(factionID)) {
+            LongHashMap<Claim> dimension = STORE.get(paid.getDimension());
+            LongHashMap<Claim> levelBuffers =
+                    buffers.computeIfAbsent(paid.level, level -> new LongHashMap<>());
             for (int dx = -1; dx <= 1; dx++) {
                 for (int dz = -1; dz <= 1; dz++) {
                     if (dx == 0 && dz == 0) continue;
-                    String key = String.format("%s-%d-%d", paid.level, paid.x + dx, paid.z + dz);
-                    Claim neighbor = STORE.get(key);
-                    if (neighbor == null && !paidKeys.contains(key)) {
-                        buffers.add(new Claim(paid.x + dx, paid.z + dz, paid.level, factionID, true));
+                    long key = ChunkKey.pack(paid.x + dx, paid.z + dz);
+                    if (!dimension.containsKey(key) && !levelBuffers.containsKey(key)) {
+                        levelBuffers.put(
+                                key, new Claim(paid.x + dx, paid.z + dz, paid.level, factionID, true));
                     }
                 }
             }
         }
-        return List.copyOf(buffers);
+
+        List<Claim> out = new ArrayList<>();
+        buffers.values().forEach(levelBuffers -> out.addAll(levelBuffers.values()));
+        return out;
+    }
+
+    // only real claims live here: one primitive map per dimension handle (see
+    // DimensionRegistry), keyed by ChunkKey.pack(x, z)
+    private static final ArrayList<LongHashMap<Claim>> STORE = new ArrayList<>();
+    // the same claims grouped by owner, kept in step with STORE by index()/unindex()
+    private static final HashMap<UUID, Set<Claim>> BY_FACTION = new HashMap<>();
+    // per dimension: every chunk within one chunk of a paid claim, with how many paid
+    // neighbours each faction has there. Updated in the 3x3 neighbourhood of each edit.
+    private static final ArrayList<LongHashMap<BufferZone>> BUFFERS = new ArrayList<>();
+    // per faction: how many unpaid chunks are currently in its buffer zone
+    private static final HashMap<UUID, Integer> BUFFER_COUNTS = new HashMap<>();
+
+    /**
+     * Reads the claims and indexes them, with each dimension's map sized for its claims up front.
+     * Called once by {@link Bootstrap}.
+     *
+     * @return the number of claims loaded
+     */
+    static int load() {
+        Database.registerFormat(Claim.class, new ClaimFormat());
+        Database.registerIndex(Claim.class, "Level", "X", "Z");
+        Database.registerIndex(Claim.class, "FactionID");
+        List<Claim> claims = Database.loadItems(Claim.class, Claim::getKey);
+
+        int[] counts = new int[0];
+        for (Claim claim : claims) {
+            int dimension = claim.getDimension();
+            if (dimension >= counts.length) counts = Arrays.copyOf(counts, dimension + 1);
+            counts[dimension]++;
+        }
+        for (int dimension = STORE.size(); dimension < counts.length; dimension++) {
+            STORE.add(new LongHashMap<>(counts[dimension]));
+            BUFFERS.add(new LongHashMap<>(counts[dimension]));
+        }
+
+        for (Claim claim : claims) {
+            index(claim);
+        }
+        WriteBehind.register(Claim.class, Claim::all, Claim::getKey);
+        return claims.size();
     }
-    // only real claims live here
-    public static final HashMap<String, Claim> STORE =
-            Database.load(Claim.class, Claim::getKey);
 
     /** chunk X coordinate */
     @Field("X") public int x;
@@ -65,6 +119,8 @@ public class Claim {
     @Field("Z") public int z;
     /** dimension ID */
     @Field("Level") public String level;
+    // not persisted - handle for level from DimensionRegistry, resolved on first use
+    private int dimension = -1;
     /** owning faction */
     @Field("FactionID") public UUID factionID;
     /** which rank may build here */
@@ -164,12 +220,13 @@ public class Claim {
         this.x           = x;
         this.z           = z;
         this.level       = level;
+        this.dimension   = DimensionRegistry.of(level);
         this.factionID   = factionID;
         this.accessLevel = Rank.MEMBER;
         this.buffer      = buffer;
     }
-    // Add to Claim class
-    private static final Map<String, Claim> BUFFER_CACHE = new ConcurrentHashMap<>();
+    // not persisted - lazily built from level/x/z, which never change after construction
+    private String key;
 
     /** no‑arg for Database deserialization (always real, buffer==false) */
     public Claim() {
@@ -178,7 +235,28 @@ public class Claim {
 
     /** unique key for real claims */
     public String getKey() {
-        return String.format("%s-%d-%d", level, x, z);
+        if (key == null) {
+            key = getKey(x, z, level);
+        }
+        return key;
+    }
+
+    /** key of the real claim at this chunk, see {@link #getKey()} */
+    public static String getKey(int x, int z, String level) {
+        return level + "-" + x + "-" + z;
+    }
+
+    /** handle of this claim's dimension, see {@link DimensionRegistry} */
+    public int getDimension() {
+        if (dimension < 0) {
+            dimension = DimensionRegistry.of(level);
+        }
+        return dimension;
+    }
+
+    /** chunk coordinates packed with {@link ChunkKey#pack(int, int)} */
+    public long getPackedPos() {
+        return ChunkKey.pack(x, z);
     }
 
     /**
@@ -186,53 +264,137 @@ public class Claim {
      * around exactly one neighboring real claim.  Returns null otherwise.
      */
     public static Claim get(int cx, int cz, String level) {
-        String key = String.format("%s-%d-%d", level, cx, cz);
+        return get(cx, cz, DimensionRegistry.of(level));
+    }
+
+    /**
+     * Same as {@link #get(int, int, String)}, with the dimension given as a {@link
+     * DimensionRegistry} handle so the hot path never touches strings.
+     */
+    public static Claim get(int cx, int cz, int dimension) {
+        if (dimension >= STORE.size()) return null;
+
+        long key = ChunkKey.pack(cx, cz);
 
         // 1) Check real claims first
-        Claim real = STORE.get(key);
+        Claim real = STORE.get(dimension).get(key);
         if (real != null) return real;
 
-        // 2) Check buffer cache
-        Claim cached = BUFFER_CACHE.get(key);
-        if (cached != null) return cached;
+        // 2) Otherwise it is a buffer if any paid claim is adjacent
+        BufferZone zone = BUFFERS.get(dimension).get(key);
+        return zone == null ? null : zone.claim(cx, cz, dimension);
+    }
+
+    /** All real claims, across every dimension. */
+    public static List<Claim> all() {
+        List<Claim> claims = new ArrayList<>();
+        STORE.forEach(dimension -> claims.addAll(dimension.values()));
+        return claims;
+    }
+
+    private static LongHashMap<Claim> dimension(int dimension) {
+        while (STORE.size() <= dimension) {
+            STORE.add(new LongHashMap<>());
+            BUFFERS.add(new LongHashMap<>());
+        }
+        return STORE.get(dimension);
+    }
+
+    private static void index(Claim claim) {
+        long pos = claim.getPackedPos();
+        Claim replaced = dimension(claim.getDimension()).put(pos, claim);
+        if (replaced != null) {
+            unindexOwner(replaced);
+            removeBuffer(replaced);
+        } else {
+            // the chunk is paid now, so it no longer counts towards anyone's buffer
+            BufferZone zone = BUFFERS.get(claim.getDimension()).get(pos);
+            if (zone != null) zone.forEachFaction(faction -> adjustBufferCount(faction, -1));
+        }
+        BY_FACTION.computeIfAbsent(claim.factionID, id -> new LinkedHashSet<>()).add(claim);
+        addBuffer(claim);
+    }
+
+    private static void unindex(Claim claim) {
+        if (claim.getDimension() >= STORE.size()) return;
+        long pos = claim.getPackedPos();
+        Claim removed = STORE.get(claim.getDimension()).remove(pos);
+        if (removed == null) return;
+
+        unindexOwner(removed);
+        removeBuffer(removed);
+        // the chunk is unpaid again, so it is back in the buffer of its neighbours
+        BufferZone zone = BUFFERS.get(removed.getDimension()).get(pos);
+        if (zone != null) zone.forEachFaction(faction -> adjustBufferCount(faction, 1));
+    }
+
+    private static void unindexOwner(Claim claim) {
+        Set<Claim> owned = BY_FACTION.get(claim.factionID);
+        if (owned != null && owned.remove(claim) && owned.isEmpty()) {
+            BY_FACTION.remove(claim.factionID);
+        }
+    }
+
+    private static void addBuffer(Claim claim) {
+        LongHashMap<Claim> dimension = STORE.get(claim.getDimension());
+        LongHashMap<BufferZone> zones = BUFFERS.get(claim.getDimension());
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (dx == 0 && dz == 0) continue;
+                long pos = ChunkKey.pack(claim.x + dx, claim.z + dz);
+                BufferZone zone = zones.get(pos);
+                if (zone == null) {
+                    zone = new BufferZone();
+                    zones.put(pos, zone);
+                }
+                if (zone.increment(claim.factionID) && !dimension.containsKey(pos)) {
+                    adjustBufferCount(claim.factionID, 1);
+                }
+            }
+        }
+    }
 
-        // 3) Compute buffer zone (only if not cached)
+    private static void removeBuffer(Claim claim) {
+        LongHashMap<Claim> dimension = STORE.get(claim.getDimension());
+        LongHashMap<BufferZone> zones = BUFFERS.get(claim.getDimension());
         for (int dx = -1; dx <= 1; dx++) {
             for (int dz = -1; dz <= 1; dz++) {
                 if (dx == 0 && dz == 0) continue;
-                String nkey = String.format("%s-%d-%d", level, cx + dx, cz + dz);
-                Claim neighbor = STORE.get(nkey);
-                if (neighbor != null) {
-                    Claim buffer = new Claim(cx, cz, level, neighbor.factionID, true);
-                    BUFFER_CACHE.put(key, buffer);
-                    return buffer;
+                long pos = ChunkKey.pack(claim.x + dx, claim.z + dz);
+                BufferZone zone = zones.get(pos);
+                if (zone == null) continue;
+                if (zone.decrement(claim.factionID) && !dimension.containsKey(pos)) {
+                    adjustBufferCount(claim.factionID, -1);
                 }
+                if (zone.isEmpty()) zones.remove(pos);
             }
         }
+    }
 
-        return null;
+    private static void adjustBufferCount(UUID factionID, int delta) {
+        BUFFER_COUNTS.merge(factionID, delta, (a, b) -> a + b == 0 ? null : a + b);
     }
 
     /** remove any real claim whose faction no longer exists or invalid dim */
     public static void audit() {
-        STORE.values().removeIf(c ->
-                Faction.get(c.factionID) == null
-                        || !WorldUtils.isValid(c.level)
-        );
+        for (Claim claim : all()) {
+            if (Faction.get(claim.factionID) == null || !DimensionRegistry.isLoaded(claim.getDimension())) {
+                unindex(claim);
+                // no event for this removal, so journal it here
+                saveRemoval(claim.x, claim.z, claim.level);
+            }
+        }
     }
 
     /** add a new real claim */
-// Clear cache when claims change
     public static void add(Claim claim) {
-        STORE.put(claim.getKey(), claim);
-        BUFFER_CACHE.clear(); // Invalidate buffer cache
+        index(claim);
         ClaimEvents.ADD.invoker().onAdd(claim);
     }
 
     public void remove() {
         if (!buffer) {
-            STORE.remove(getKey());
-            BUFFER_CACHE.clear(); // Invalidate buffer cache
+            unindex(this);
             ClaimEvents.REMOVE.invoker().onRemove(x, z, level, getFaction());
         }
     }
@@ -257,6 +419,83 @@ public class Claim {
 
     /** persist only the real claims */
     public static void save() {
-        Database.save(Claim.class, STORE.values().stream().toList());
+        WriteBehind.flush(Claim.class);
+    }
+
+    /**
+     * Queue this claim to be journaled; only marked claims are written on the next save. Ignored
+     * for buffer claims and claims that have been removed.
+     */
+    public void markDirty() {
+        if (buffer || getDimension() >= STORE.size()) return;
+        if (STORE.get(getDimension()).get(getPackedPos()) == this) {
+            WriteBehind.put(Claim.class, this);
+        }
+    }
+
+    /** Journal the removal of the real claim at this chunk. */
+    public static void saveRemoval(int x, int z, String level) {
+        WriteBehind.remove(Claim.class, getKey(x, z, level));
+    }
+
+    /**
+     * Reference counts for one chunk next to paid claims: for each faction, how many of the 8
+     * surrounding chunks it has paid for. The first faction to reach the chunk owns the buffer.
+     */
+    private static final class BufferZone {
+        private UUID[] factions = new UUID[1];
+        private int[] counts = new int[1];
+        private int size;
+        // synthetic buffer claim for factions[0], built on first lookup
+        private Claim claim;
+
+        /** @return true if this is the faction's first paid neighbour */
+        boolean increment(UUID factionID) {
+            for (int i = 0; i < size; i++) {
+                if (factions[i].equals(factionID)) {
+                    counts[i]++;
+                    return false;
+                }
+            }
+            if (size == factions.length) {
+                factions = Arrays.copyOf(factions, size + 1);
+                counts = Arrays.copyOf(counts, size + 1);
+            }
+            factions[size] = factionID;
+            counts[size++] = 1;
+            return true;
+        }
+
+        /** @return true if that was the faction's last paid neighbour */
+        boolean decrement(UUID factionID) {
+            for (int i = 0; i < size; i++) {
+                if (!factions[i].equals(factionID)) continue;
+                if (--counts[i] > 0) return false;
+
+                System.arraycopy(factions, i + 1, factions, i, size - i - 1);
+                System.arraycopy(counts, i + 1, counts, i, size - i - 1);
+                factions[--size] = null;
+                if (i == 0) claim = null;
+                return true;
+            }
+            return false;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void forEachFaction(Consumer<UUID> action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(factions[i]);
+            }
+        }
+
+        Claim claim(int x, int z, int dimension) {
+            if (claim == null) {
+                claim = new Claim(x, z, DimensionRegistry.getName(dimension), factions[0], true);
+            }
+            return claim;
+        }
     }
 }
@@ -0,0 +1,180 @@
+package io.icker.factions.api.persistents;
+
+import io.icker.factions.api.persistents.User.Rank;
+import io.icker.factions.database.SerializerRegistry;
+import io.icker.factions.database.SnapshotFormat;
+import io.icker.factions.util.ChunkKey;
+
+import net.minecraft.nbt.NbtByteArray;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIntArray;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtLongArray;
+import net.minecraft.nbt.NbtString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Columnar layout for claim.dat. Claims are grouped by level and faction, so each group stores its
+ * level and faction once and then one array per column:
+ *
+ * <ul>
+ *   <li>{@code Chunks}: positions packed with {@link ChunkKey#pack(int, int)}
+ *   <li>{@code Access}: indices into the root {@code AccessLevels} dictionary, -1 for none
+ *   <li>{@code Created}: creation times in ascending order, each stored as the difference from the
+ *       previous one, which compresses far better than the raw timestamps
+ *   <li>{@code Permitted} / {@code PermittedAt}: the player lists of the few claims that have
+ *       grants, and the index of each of those claims in the group
+ * </ul>
+ */
+final class ClaimFormat implements SnapshotFormat<Claim> {
+    private static final int VERSION = 1;
+
+    private record Group(String level, UUID factionID) {}
+
+    @Override
+    public int version() {
+        return VERSION;
+    }
+
+    @Override
+    public NbtCompound write(List<Claim> claims) {
+        Map<Group, List<Claim>> groups = new LinkedHashMap<>();
+        for (Claim claim : claims) {
+            groups.computeIfAbsent(new Group(claim.level, claim.factionID), g -> new ArrayList<>())
+                    .add(claim);
+        }
+
+        List<Rank> dictionary = new ArrayList<>();
+        NbtList groupList = new NbtList();
+        for (Map.Entry<Group, List<Claim>> entry : groups.entrySet()) {
+            List<Claim> group = entry.getValue();
+            group.sort(Comparator.comparingLong(claim -> claim.created));
+
+            int size = group.size();
+            long[] chunks = new long[size];
+            byte[] access = new byte[size];
+            long[] created = new long[size];
+            List<Integer> permittedAt = new ArrayList<>();
+            NbtList permitted = new NbtList();
+
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                Claim claim = group.get(i);
+                chunks[i] = claim.getPackedPos();
+                access[i] = (byte) dictionaryIndex(dictionary, claim.accessLevel);
+                created[i] = claim.created - previous;
+                previous = claim.created;
+
+                if (claim.permittedPlayers != null && !claim.permittedPlayers.isEmpty()) {
+                    NbtList players = new NbtList();
+                    claim.permittedPlayers.forEach(
+                            player -> players.add(SerializerRegistry.toNbtElement(UUID.class, player)));
+                    permittedAt.add(i);
+                    permitted.add(players);
+                }
+            }
+
+            NbtCompound compound = new NbtCompound();
+            if (entry.getKey().level() != null) {
+                compound.put("Level", NbtString.of(entry.getKey().level()));
+            }
+            if (entry.getKey().factionID() != null) {
+                compound.put(
+                        "Faction",
+                        SerializerRegistry.toNbtElement(UUID.class, entry.getKey().factionID()));
+            }
+            compound.put("Chunks", new NbtLongArray(chunks));
+            compound.put("Access", new NbtByteArray(access));
+            compound.put("Created", new NbtLongArray(created));
+            if (!permittedAt.isEmpty()) {
+                compound.put(
+                        "PermittedAt",
+                        new NbtIntArray(permittedAt.stream().mapToInt(Integer::intValue).toArray()));
+                compound.put("Permitted", permitted);
+            }
+            groupList.add(compound);
+        }
+
+        NbtList accessLevels = new NbtList();
+        dictionary.forEach(rank -> accessLevels.add(SerializerRegistry.toNbtElement(Rank.class, rank)));
+
+        NbtCompound root = new NbtCompound();
+        root.put("AccessLevels", accessLevels);
+        root.put("Groups", groupList);
+        return root;
+    }
+
+    @Override
+    public List<Claim> read(NbtCompound root, int version) throws IOException {
+        NbtList accessLevels = (NbtList) root.get("AccessLevels");
+        Rank[] dictionary = new Rank[accessLevels.size()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = SerializerRegistry.fromNbtElement(Rank.class, accessLevels.get(i));
+        }
+
+        List<Claim> claims = new ArrayList<>();
+        NbtList groups = (NbtList) root.get("Groups");
+        for (int g = 0; g < groups.size(); g++) {
+            NbtCompound group = (NbtCompound) groups.get(g);
+            String level =
+                    group.contains("Level")
+                            ? SerializerRegistry.fromNbtElement(String.class, group.get("Level"))
+                            : null;
+            UUID factionID =
+                    group.contains("Faction")
+                            ? SerializerRegistry.fromNbtElement(UUID.class, group.get("Faction"))
+                            : null;
+
+            long[] chunks = ((NbtLongArray) group.get("Chunks")).getLongArray();
+            byte[] access = ((NbtByteArray) group.get("Access")).getByteArray();
+            long[] created = ((NbtLongArray) group.get("Created")).getLongArray();
+            if (access.length != chunks.length || created.length != chunks.length) {
+                throw new IOException("Claim group columns differ in length");
+            }
+
+            int first = claims.size();
+            long time = 0;
+            for (int i = 0; i < chunks.length; i++) {
+                Claim claim = new Claim();
+                claim.x = ChunkKey.x(chunks[i]);
+                claim.z = ChunkKey.z(chunks[i]);
+                claim.level = level;
+                claim.factionID = factionID;
+                claim.accessLevel = access[i] < 0 ? null : dictionary[access[i]];
+                time += created[i];
+                claim.created = time;
+                claims.add(claim);
+            }
+
+            if (group.contains("PermittedAt")) {
+                int[] permittedAt = ((NbtIntArray) group.get("PermittedAt")).getIntArray();
+                NbtList permitted = (NbtList) group.get("Permitted");
+                for (int i = 0; i < permittedAt.length; i++) {
+                    List<UUID> players = claims.get(first + permittedAt[i]).permittedPlayers;
+                    NbtList list = (NbtList) permitted.get(i);
+                    for (int j = 0; j < list.size(); j++) {
+                        players.add(SerializerRegistry.fromNbtElement(UUID.class, list.get(j)));
+                    }
+                }
+            }
+        }
+        return claims;
+    }
+
+    private static int dictionaryIndex(List<Rank> dictionary, Rank rank) {
+        if (rank == null) return -1;
+        int index = dictionary.indexOf(rank);
+        if (index < 0) {
+            index = dictionary.size();
+            dictionary.add(rank);
+        }
+        return index;
+    }
+}
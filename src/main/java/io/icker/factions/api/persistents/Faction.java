@@ -2,9 +2,12 @@ package io.icker.factions.api.persistents;
 
 import io.icker.factions.FactionsMod;
 import io.icker.factions.api.events.FactionEvents;
+import io.icker.factions.core.ProtectionCache;
 import io.icker.factions.database.Database;
 import io.icker.factions.database.Field;
 import io.icker.factions.database.Name;
+import io.icker.factions.database.WriteBehind;
+import io.icker.factions.util.LazyInventory;
 import io.icker.factions.util.Message;
 import io.icker.factions.util.WorldUtils;
 
@@ -18,14 +21,34 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
 import java.util.UUID;
 
 @Name("Faction")
 public class Faction {
-    private static final HashMap<UUID, Faction> STORE =
-            Database.load(Faction.class, Faction::getID);
+    // Filled by load(), see Bootstrap
+    private static HashMap<UUID, Faction> STORE = new HashMap<>();
+
+    // Lower-cased name -> faction; the sorted copy answers prefix queries for tab completion
+    private static final HashMap<String, Faction> BY_NAME = new HashMap<>();
+    private static final TreeMap<String, Faction> NAMES_SORTED = new TreeMap<>();
+
+    /** @return the number of factions loaded */
+    static int load() {
+        if (FactionsMod.CONFIG.SHARDED_FACTIONS) {
+            Database.registerSharded(Faction.class);
+        }
+        STORE = Database.load(Faction.class, Faction::getID);
+        STORE.values().forEach(Faction::indexName);
+        STORE.values().forEach(RelationshipMatrix::register);
+        STORE.values().forEach(Faction::compileRelationships);
+        WriteBehind.register(Faction.class, () -> STORE.values().stream().toList(), Faction::getKey);
+        return STORE.size();
+    }
 
     @Field("ID")            private UUID    id;
     @Field("Name")          private String  name;
@@ -36,7 +59,7 @@ public class Faction {
     @Field("Power")         private int     power;
     @Field("AdminPower")    private int     adminPower;
     @Field("Home")          private Home    home;
-    @Field("Safe")          private SimpleInventory safe   = new SimpleInventory(54);
+    @Field("Safe")          private LazyInventory   safe   = new LazyInventory(54);
     @Field("Invites")       public  ArrayList<UUID> invites = new ArrayList<>();
     @Field("Relationships") private ArrayList<Relationship> relationships =
             new ArrayList<>();
@@ -44,6 +67,11 @@ public class Faction {
     public ArrayList<Relationship.Permissions> guest_permissions =
             new ArrayList<>(FactionsMod.CONFIG.RELATIONSHIPS.DEFAULT_GUEST_PERMISSIONS);
 
+    // Relationships keyed by target, built on first use since the loader fills the list directly
+    private HashMap<UUID, Relationship> relationshipsByTarget;
+    int matrixSlot = -1;
+    int mutualAllyCount;
+
     public Faction(
             String name, String description, String motd,
             Formatting color, boolean open, int power
@@ -70,13 +98,25 @@ public class Faction {
 
     @Nullable
     public static Faction getByName(String name) {
-        return STORE.values().stream()
-                .filter(f -> f.name.equalsIgnoreCase(name))
-                .findFirst().orElse(null);
+        return BY_NAME.get(normalizeName(name));
+    }
+
+    /**
+     * Factions whose name starts with the prefix, ignoring case, in alphabetical order. The
+     * returned view is live, so iterate it immediately rather than storing it.
+     */
+    public static Collection<Faction> getByNamePrefix(String prefix) {
+        String from = normalizeName(prefix);
+        return Collections.unmodifiableCollection(
+                NAMES_SORTED.subMap(from, true, from + Character.MAX_VALUE, false).values());
     }
 
     public static void add(Faction faction) {
         STORE.put(faction.id, faction);
+        faction.indexName();
+        RelationshipMatrix.register(faction);
+        faction.compileRelationships();
+        faction.markDirty();
     }
 
     public static Collection<Faction> all() {
@@ -117,17 +157,23 @@ public class Faction {
         return Math.max(0, power + adminPower);
     }
 
+    /** Decodes the safe on first use; until then it is kept as loaded. */
     public SimpleInventory getSafe() {
-        return safe;
+        return safe.get(this::markDirty);
+    }
+
+    public boolean isSafeEmpty() {
+        return safe.isEmpty();
     }
 
     public DefaultedList<ItemStack> clearSafe() {
-        DefaultedList<ItemStack> stacks = this.safe.heldStacks;
-        this.safe = new SimpleInventory(54);
+        DefaultedList<ItemStack> stacks = getSafe().heldStacks;
+        this.safe = new LazyInventory(54);
+        markDirty();
         return stacks;
     }
     public boolean hasSufficientClaimPower() {
-        int required = this.getClaims().size() * FactionsMod.CONFIG.POWER.CLAIM_WEIGHT;
+        int required = this.getClaimCount() * FactionsMod.CONFIG.POWER.CLAIM_WEIGHT;
         return this.getPower() >= required;
     }
     public boolean isOpen() {
@@ -135,7 +181,9 @@ public class Faction {
     }
 
     public void setName(String name) {
+        unindexName();
         this.name = name;
+        indexName();
         FactionEvents.MODIFY.invoker().onModify(this);
     }
 
@@ -214,16 +262,28 @@ public class Faction {
 
     public void addAdminPower(int amount) {
         adminPower += amount;
+        ProtectionCache.invalidate(id);
+        markDirty();
     }
 
     public List<User> getUsers() {
         return User.getByFaction(id);
     }
 
+    /** Number of members; cheaper than {@code getUsers().size()}. */
+    public int getUserCount() {
+        return User.countByFaction(id);
+    }
+
     public List<Claim> getClaims() {
         return Claim.getPaidByFaction(id);
     }
 
+    /** Number of paid claims; cheaper than {@code getClaims().size()}. */
+    public int getClaimCount() {
+        return Claim.countByFaction(id);
+    }
+
     public void removeAllClaims() {
         Claim.getPaidByFaction(id).forEach(Claim::remove);
         FactionEvents.REMOVE_ALL_CLAIMS.invoker().onRemoveAllClaims(this);
@@ -243,27 +303,36 @@ public class Faction {
 
     public void setHome(Home home) {
         this.home = home;
+        markDirty();
         FactionEvents.SET_HOME.invoker().onSetHome(this, home);
     }
 
+    /**
+     * @return the stored relationship, or the shared {@link Relationship#NEUTRAL} if there is none;
+     *     use {@link Relationship#copyFor(UUID)} before modifying it
+     */
     public Relationship getRelationship(UUID target) {
-        return relationships.stream()
-                .filter(rel -> rel.target.equals(target))
-                .findFirst()
-                .orElse(new Relationship(target, Relationship.Status.NEUTRAL));
+        Relationship rel = relationshipsByTarget().get(target);
+        return rel != null ? rel : Relationship.NEUTRAL;
     }
 
     public Relationship getReverse(Relationship rel) {
         Faction other = Faction.get(rel.target);
-        return (other != null)
-                ? other.getRelationship(id)
-                : new Relationship(id, Relationship.Status.NEUTRAL);
+        return (other != null) ? other.getRelationship(id) : Relationship.NEUTRAL;
     }
 
     public boolean isMutualAllies(UUID target) {
-        Relationship rel = getRelationship(target);
-        return rel.status == Relationship.Status.ALLY
-                && getReverse(rel).status == Relationship.Status.ALLY;
+        Faction other = Faction.get(target);
+        return other != null && isMutualAllies(other);
+    }
+
+    public boolean isMutualAllies(Faction other) {
+        return RelationshipMatrix.isMutualAllies(this, other);
+    }
+
+    /** Number of mutual allies; cheaper than {@code getMutualAllies().size()}. */
+    public int getMutualAllyCount() {
+        return mutualAllyCount;
     }
 
     public List<Relationship> getMutualAllies() {
@@ -290,14 +359,40 @@ public class Faction {
                         .filter(rel -> !rel.target.equals(target))
                         .toList()
         );
+        relationshipsByTarget().remove(target);
+        updateMatrix(target);
+        ProtectionCache.invalidate(id);
+        markDirty();
     }
 
     public void setRelationship(Relationship relationship) {
         relationships.removeIf(r -> r.target.equals(relationship.target));
+        relationshipsByTarget().remove(relationship.target);
         if (relationship.status != Relationship.Status.NEUTRAL
                 || !relationship.permissions.isEmpty()) {
             relationships.add(relationship);
+            relationshipsByTarget().put(relationship.target, relationship);
+        }
+        updateMatrix(relationship.target);
+        ProtectionCache.invalidate(id);
+        markDirty();
+    }
+
+    private HashMap<UUID, Relationship> relationshipsByTarget() {
+        if (relationshipsByTarget == null) {
+            relationshipsByTarget = new HashMap<>();
+            relationships.forEach(rel -> relationshipsByTarget.put(rel.target, rel));
         }
+        return relationshipsByTarget;
+    }
+
+    private void updateMatrix(UUID target) {
+        Faction other = Faction.get(target);
+        if (other != null) RelationshipMatrix.update(this, other);
+    }
+
+    private void compileRelationships() {
+        relationships.forEach(rel -> updateMatrix(rel.target));
     }
 
     /** Fully disband this faction: eject users, clear relationships, claims, then delete. */
@@ -309,6 +404,9 @@ public class Faction {
         });
         removeAllClaims();
         STORE.remove(id);
+        WriteBehind.remove(Faction.class, getKey());
+        unindexName();
+        RelationshipMatrix.unregister(this);
         FactionEvents.DISBAND.invoker().onDisband(this);
     }
 
@@ -324,22 +422,61 @@ public class Faction {
             if (f.home != null && !WorldUtils.isValid(f.home.level)) {
                 f.setHome(null);
             }
-            f.relationships.removeIf(rel -> Faction.get(rel.target) == null);
-            return f.getUsers().stream().noneMatch(u -> u.rank == User.Rank.OWNER);
+            if (f.relationships.removeIf(rel -> Faction.get(rel.target) == null)) {
+                f.relationshipsByTarget = null;
+                f.markDirty();
+            }
+            boolean orphaned = f.getUsers().stream().noneMatch(u -> u.rank == User.Rank.OWNER);
+            if (orphaned) {
+                f.unindexName();
+                RelationshipMatrix.unregister(f);
+                WriteBehind.remove(Faction.class, f.getKey());
+            }
+            return orphaned;
         });
     }
 
+    private static String normalizeName(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // If two stored factions only differ in case, the first one indexed keeps the name
+    private void indexName() {
+        if (name == null) return;
+        String key = normalizeName(name);
+        if (BY_NAME.putIfAbsent(key, this) == null) {
+            NAMES_SORTED.put(key, this);
+        }
+    }
+
+    private void unindexName() {
+        if (name == null) return;
+        String key = normalizeName(name);
+        if (BY_NAME.remove(key, this)) {
+            NAMES_SORTED.remove(key);
+        }
+    }
+
     /** Persist all factions (including any disbands). */
     public static void save() {
-        Database.save(Faction.class, STORE.values().stream().toList());
+        WriteBehind.flush(Faction.class);
+    }
+
+    /**
+     * Queue this faction to be journaled; only marked factions are written on the next save. Call
+     * after changing any persisted field. Ignored once the faction has been removed.
+     */
+    public void markDirty() {
+        if (STORE.get(id) == this) WriteBehind.put(Faction.class, this);
     }
 
     /**
-     * Base+member+ally maximum.
+     * Base+member+ally maximum. Constant time: both counts are maintained incrementally, and the
+     * config is read on every call so a reload applies immediately.
      */
     public int calculateMaxPower() {
         return FactionsMod.CONFIG.POWER.BASE
-                + getUsers().size() * FactionsMod.CONFIG.POWER.MEMBER
-                + getMutualAllies().size() * FactionsMod.CONFIG.POWER.POWER_PER_ALLY;
+                + getUserCount() * FactionsMod.CONFIG.POWER.MEMBER
+                + getMutualAllyCount() * FactionsMod.CONFIG.POWER.POWER_PER_ALLY;
     }
 }
@@ -4,6 +4,7 @@ import io.icker.factions.FactionsMod;
 import io.icker.factions.database.Field;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 public class Relationship {
@@ -29,13 +30,37 @@ public class Relationship {
     public Status status;
 
     @Field("Permissions")
-    public ArrayList<Permissions> permissions =
+    public List<Permissions> permissions =
             new ArrayList<>(FactionsMod.CONFIG.RELATIONSHIPS.DEFAULT_GUEST_PERMISSIONS);
 
+    /**
+     * Shared stand-in returned when a faction has no stored relationship with a target. It has no
+     * target and its permissions can't be changed, so an edit meant for a stored relationship
+     * throws instead of changing every faction pair without one; use {@link #copyFor(UUID)} to get
+     * an editable relationship.
+     */
+    public static final Relationship NEUTRAL =
+            new Relationship(
+                    null,
+                    Status.NEUTRAL,
+                    List.copyOf(FactionsMod.CONFIG.RELATIONSHIPS.DEFAULT_GUEST_PERMISSIONS));
+
     public Relationship(UUID target, Status status) {
         this.target = target;
         this.status = status;
     }
 
+    private Relationship(UUID target, Status status, List<Permissions> permissions) {
+        this(target, status);
+        this.permissions = permissions;
+    }
+
     public Relationship() {}
+
+    /** An editable copy of this relationship pointing at the target. */
+    public Relationship copyFor(UUID target) {
+        Relationship copy = new Relationship(target, status);
+        copy.permissions = new ArrayList<>(permissions);
+        return copy;
+    }
 }
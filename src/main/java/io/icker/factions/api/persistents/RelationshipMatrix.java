@@ -0,0 +1,127 @@
+package io.icker.factions.api.persistents;
+
+import io.icker.factions.api.persistents.Relationship.Permissions;
+import io.icker.factions.api.persistents.Relationship.Status;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Every faction pair's relationship compiled into one cell, so combat and claim protection checks
+ * are a single array read instead of list scans on both factions.
+ *
+ * <p>Each faction holds a slot; {@code rows[a][b]} describes how faction {@code a} regards faction
+ * {@code b}. A cell packs the status ordinal (bits 0-1), the granted permissions (one bit per
+ * {@link Permissions} from bit 2) and whether the pair are mutual allies. Rows are only allocated
+ * once a faction has a stored relationship, since most pairs never have one. Each faction's
+ * mutual-ally count is kept alongside. Kept current by {@link Faction}; only touched from the
+ * server thread.
+ */
+public final class RelationshipMatrix {
+    private static final int STATUS_MASK = 0b11;
+    private static final int PERMISSIONS_SHIFT = 2;
+    private static final int MUTUAL_ALLY = 1 << (PERMISSIONS_SHIFT + Permissions.values().length);
+
+    private static final Status[] STATUSES = Status.values();
+    private static final short DEFAULT = encode(Relationship.NEUTRAL, false);
+
+    private static short[][] rows = new short[16][];
+    private static Faction[] factions = new Faction[16];
+    private static int capacity = 16;
+    private static int next = 0;
+    private static final ArrayDeque<Integer> FREE = new ArrayDeque<>();
+
+    private RelationshipMatrix() {}
+
+    public static Status getStatus(Faction from, Faction to) {
+        return STATUSES[cell(from, to) & STATUS_MASK];
+    }
+
+    public static boolean hasPermission(Faction from, Faction to, Permissions permission) {
+        return (cell(from, to) & (1 << (PERMISSIONS_SHIFT + permission.ordinal()))) != 0;
+    }
+
+    public static boolean isMutualAllies(Faction a, Faction b) {
+        return (cell(a, b) & MUTUAL_ALLY) != 0;
+    }
+
+    static void register(Faction faction) {
+        if (faction.matrixSlot >= 0) return;
+        if (!FREE.isEmpty()) {
+            faction.matrixSlot = FREE.pop();
+        } else {
+            if (next == capacity) {
+                capacity <<= 1;
+                rows = Arrays.copyOf(rows, capacity);
+                factions = Arrays.copyOf(factions, capacity);
+            }
+            faction.matrixSlot = next++;
+        }
+        factions[faction.matrixSlot] = faction;
+        faction.mutualAllyCount = 0;
+    }
+
+    static void unregister(Faction faction) {
+        int slot = faction.matrixSlot;
+        if (slot < 0) return;
+
+        rows[slot] = null;
+        for (int i = 0; i < capacity; i++) {
+            short[] row = rows[i];
+            if (row == null || slot >= row.length) continue;
+            if ((row[slot] & MUTUAL_ALLY) != 0) factions[i].mutualAllyCount--;
+            row[slot] = DEFAULT;
+        }
+        factions[slot] = null;
+        faction.matrixSlot = -1;
+        faction.mutualAllyCount = 0;
+        FREE.push(slot);
+    }
+
+    /** Recompiles the pair's cells in both directions after {@code from} changed its stance. */
+    static void update(Faction from, Faction to) {
+        if (from.matrixSlot < 0 || to.matrixSlot < 0) return;
+
+        Relationship forward = from.getRelationship(to.getID());
+        Relationship reverse = to.getRelationship(from.getID());
+        boolean mutual = forward.status == Status.ALLY && reverse.status == Status.ALLY;
+
+        if (mutual != isMutualAllies(from, to)) {
+            int change = mutual ? 1 : -1;
+            from.mutualAllyCount += change;
+            to.mutualAllyCount += change;
+        }
+
+        set(from.matrixSlot, to.matrixSlot, encode(forward, mutual));
+        set(to.matrixSlot, from.matrixSlot, encode(reverse, mutual));
+    }
+
+    private static short cell(Faction from, Faction to) {
+        int a = from.matrixSlot;
+        int b = to.matrixSlot;
+        if (a < 0 || b < 0) return DEFAULT;
+        short[] row = rows[a];
+        return row == null || b >= row.length ? DEFAULT : row[b];
+    }
+
+    private static void set(int a, int b, short value) {
+        short[] row = rows[a];
+        if (row == null || b >= row.length) {
+            if (value == DEFAULT && row == null) return;
+            int length = row == null ? 0 : row.length;
+            row = row == null ? new short[capacity] : Arrays.copyOf(row, capacity);
+            Arrays.fill(row, length, row.length, DEFAULT);
+            rows[a] = row;
+        }
+        row[b] = value;
+    }
+
+    private static short encode(Relationship relationship, boolean mutualAllies) {
+        int value = relationship.status.ordinal();
+        for (Permissions permission : relationship.permissions) {
+            value |= 1 << (PERMISSIONS_SHIFT + permission.ordinal());
+        }
+        if (mutualAllies) value |= MUTUAL_ALLY;
+        return (short) value;
+    }
+}
@@ -6,6 +6,7 @@ import io.icker.factions.config.Config;
 import io.icker.factions.database.Database;
 import io.icker.factions.database.Field;
 import io.icker.factions.database.Name;
+import io.icker.factions.database.WriteBehind;
 import io.icker.factions.util.WorldUtils;
 
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -14,6 +15,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -22,9 +24,21 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Name("User")
 public class User {
-    // Thread-safe map of all loaded users
-    private static final ConcurrentHashMap<UUID, User> STORE =
-            new ConcurrentHashMap<>(Database.load(User.class, User::getID));
+    // Thread-safe map of all loaded users, filled by load(), see Bootstrap
+    private static volatile ConcurrentHashMap<UUID, User> STORE = new ConcurrentHashMap<>();
+
+    // Reverse index faction ID -> members, and the subset of those currently online
+    private static final ConcurrentHashMap<UUID, Set<User>> BY_FACTION = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<UUID, Set<User>> ONLINE_BY_FACTION =
+            new ConcurrentHashMap<>();
+
+    /** @return the number of users loaded */
+    static int load() {
+        STORE = Database.load(User.class, User::getID, ConcurrentHashMap::new);
+        STORE.values().forEach(u -> addTo(BY_FACTION, u.factionID, u));
+        WriteBehind.register(User.class, () -> List.copyOf(STORE.values()), User::getKey);
+        return STORE.size();
+    }
 
     // Field definitions for Database serialization
     @Field("ID")            private UUID     id;
@@ -45,6 +59,7 @@ public class User {
     // --------------------------------
 
     private User spoof;
+    private boolean online;
 
     /** Constructor for new users. */
     public User(UUID id) {
@@ -63,7 +78,16 @@ public class User {
     /** Returns (and if needed creates) the User for this UUID. */
     @NotNull
     public static User get(UUID id) {
-        return STORE.computeIfAbsent(id, User::new);
+        User user = STORE.get(id);
+        if (user != null) return user;
+
+        return STORE.computeIfAbsent(
+                id,
+                key -> {
+                    User created = new User(key);
+                    created.markDirty();
+                    return created;
+                });
     }
 
     /** All loaded users. */
@@ -75,9 +99,22 @@ public class User {
      * Retrieve all users in the given faction.
      */
     public static List<User> getByFaction(UUID factionID) {
-        return STORE.values().stream()
-                .filter(u -> u.isInFaction() && u.factionID.equals(factionID))
-                .toList();
+        Set<User> members = BY_FACTION.get(factionID);
+        return members == null ? List.of() : List.copyOf(members);
+    }
+
+    /** Number of users in the given faction; cheaper than {@code getByFaction(id).size()}. */
+    public static int countByFaction(UUID factionID) {
+        Set<User> members = BY_FACTION.get(factionID);
+        return members == null ? 0 : members.size();
+    }
+
+    /**
+     * Retrieve the users in the given faction that are currently connected.
+     */
+    public static List<User> getOnlineByFaction(UUID factionID) {
+        Set<User> members = ONLINE_BY_FACTION.get(factionID);
+        return members == null ? List.of() : List.copyOf(members);
     }
 
     /**
@@ -86,10 +123,13 @@ public class User {
     public static void audit() {
         STORE.values().forEach(u -> {
             if (u.factionID != null && Faction.get(u.factionID) == null) {
+                u.unindex();
                 u.factionID = null;
+                u.markDirty();
             }
-            if (u.factionID == null) {
+            if (u.factionID == null && u.rank != null) {
                 u.rank = null;
+                u.markDirty();
             }
         });
     }
@@ -103,15 +143,14 @@ public class User {
         STORE.values().forEach(u -> {
             if (u.lastOnline <= 0) {
                 u.lastOnline = now;
+                u.markDirty();
             }
         });
     }
 
     /** Persist all users to disk. */
     public static void saveAll() {
-        synchronized (STORE) {
-            Database.save(User.class, List.copyOf(STORE.values()));
-        }
+        WriteBehind.flush(User.class);
     }
 
     /** Alias for saveAll(). */
@@ -119,6 +158,14 @@ public class User {
         saveAll();
     }
 
+    /**
+     * Queue this user to be journaled; only marked users are written on the next save. Call after
+     * changing any persisted field.
+     */
+    public void markDirty() {
+        WriteBehind.put(User.class, this);
+    }
+
     // ----------------------------------------------------
     //  Instance methods & business logic
     // ----------------------------------------------------
@@ -135,6 +182,11 @@ public class User {
         return factionID != null;
     }
 
+    @Nullable
+    public UUID getFactionID() {
+        return factionID;
+    }
+
     @Nullable
     public Faction getFaction() {
         return Faction.get(factionID);  // may be null if the faction was disbanded
@@ -145,9 +197,12 @@ public class User {
      * Also resets their personal drain counter.
      */
     public void joinFaction(UUID factionID, Rank rank) {
+        unindex();
         this.factionID    = factionID;
         this.rank         = rank;
         this.powerDrained = 0;
+        index();
+        markDirty();
         FactionEvents.MEMBER_JOIN.invoker()
                 .onMemberJoin(Faction.get(factionID), this);
     }
@@ -157,13 +212,14 @@ public class User {
         // 1) grab their current faction ID
         UUID oldFactionId = this.factionID;
         // 2) clear out their faction membership
+        unindex();
         this.factionID = null;
+        markDirty();
 
         // 3) revoke any per-chunk grants this user had on that faction’s claims
         Claim.getPaidByFaction(oldFactionId).forEach(claim -> {
             claim.revoke(this.getID());
         });
-        Claim.save();
 
         // 4) fire the leave event on the old faction
         FactionEvents.MEMBER_LEAVE.invoker()
@@ -178,6 +234,53 @@ public class User {
                 : player.getClientOptions().language();
     }
 
+    public boolean isOnline() {
+        return online;
+    }
+
+    /** Called from the connection events to keep the online-members view current. */
+    public void setOnline(boolean online) {
+        if (this.online == online) return;
+        this.online = online;
+        if (online) {
+            addTo(ONLINE_BY_FACTION, factionID, this);
+        } else {
+            removeFrom(ONLINE_BY_FACTION, factionID, this);
+        }
+    }
+
+    private void index() {
+        addTo(BY_FACTION, factionID, this);
+        if (online) addTo(ONLINE_BY_FACTION, factionID, this);
+    }
+
+    private void unindex() {
+        removeFrom(BY_FACTION, factionID, this);
+        removeFrom(ONLINE_BY_FACTION, factionID, this);
+    }
+
+    private static void addTo(ConcurrentHashMap<UUID, Set<User>> index, UUID factionID, User user) {
+        if (factionID == null) return;
+        index.compute(
+                factionID,
+                (id, members) -> {
+                    if (members == null) members = ConcurrentHashMap.newKeySet();
+                    members.add(user);
+                    return members;
+                });
+    }
+
+    private static void removeFrom(
+            ConcurrentHashMap<UUID, Set<User>> index, UUID factionID, User user) {
+        if (factionID == null) return;
+        index.computeIfPresent(
+                factionID,
+                (id, members) -> {
+                    members.remove(user);
+                    return members.isEmpty() ? null : members;
+                });
+    }
+
     // ----------------------------------------------------
     //  Getters / setters for decay & death-tracking
     // ----------------------------------------------------
@@ -197,6 +300,7 @@ public class User {
             throw new IllegalArgumentException("Invalid lastOnline timestamp: " + ts);
         }
         this.lastOnline = ts;
+        markDirty();
     }
 
     /**
@@ -224,6 +328,7 @@ public class User {
         // Cache config value instead of reloading entire config
         int max = FactionsMod.CONFIG.DECAY.powerPerMember;
         this.powerDrained = Math.min(drained, max);
+        markDirty();
     }
 
     // ----------------------------------------------------
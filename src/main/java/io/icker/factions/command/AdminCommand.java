@@ -4,23 +4,35 @@ import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
 import com.mojang.brigadier.tree.LiteralCommandNode;
 import io.icker.factions.FactionsMod;
 import io.icker.factions.api.persistents.Claim;
 import io.icker.factions.api.persistents.Faction;
 import io.icker.factions.api.persistents.User;
+import io.icker.factions.core.ProtectionCache;
+import io.icker.factions.database.Database;
+import io.icker.factions.database.Storage;
+import io.icker.factions.database.WriteBehind;
 import io.icker.factions.ui.AdminGui;
 import io.icker.factions.util.Command;
+import io.icker.factions.util.MarkerSync;
 import io.icker.factions.util.Message;
+import io.icker.factions.util.Territory;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 
 public class AdminCommand implements Command {
+    private static final SuggestionProvider<ServerCommandSource> STORAGES =
+            Suggests.suggest(user -> Database.STORAGES.toArray(new String[0]));
+
     private int gui(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
         ServerPlayerEntity player = context.getSource().getPlayerOrThrow();
 
@@ -36,6 +48,7 @@ public class AdminCommand implements Command {
         User user = User.get(player.getUuid());
         boolean bypass = !user.bypass;
         user.bypass = bypass;
+        user.markDirty();
 
         new Message(Text.translatable("factions.gui.admin.options.bypass.success"))
                 .filler("·")
@@ -155,6 +168,7 @@ public class AdminCommand implements Command {
             Faction.audit();
             User.audit();
         }
+        ProtectionCache.invalidateAll();
 
         ServerCommandSource source = context.getSource();
         ServerPlayerEntity player = source.getPlayerOrThrow();
@@ -167,6 +181,133 @@ public class AdminCommand implements Command {
         return 1;
     }
 
+    private int cache(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        ServerPlayerEntity player = context.getSource().getPlayerOrThrow();
+
+        long hits = ProtectionCache.getHits();
+        long misses = ProtectionCache.getMisses();
+        long total = hits + misses;
+        String rate = total == 0 ? "-" : String.format("%.1f%%", hits * 100.0 / total);
+
+        new Message(
+                        Text.translatable(
+                                "factions.gui.admin.options.cache",
+                                hits,
+                                misses,
+                                rate,
+                                ProtectionCache.getCachedPlayers()))
+                .send(player, false);
+
+        return 1;
+    }
+
+    private int resetCache(CommandContext<ServerCommandSource> context)
+            throws CommandSyntaxException {
+        ProtectionCache.resetStats();
+        new Message(Text.translatable("factions.gui.admin.options.cache.reset.success"))
+                .send(context.getSource().getPlayerOrThrow(), false);
+        return 1;
+    }
+
+    private int maps(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        new Message(
+                        Text.translatable(
+                                "factions.gui.admin.options.maps",
+                                MarkerSync.getWaiting(),
+                                MarkerSync.getComputing(),
+                                MarkerSync.getPublishing()))
+                .send(context.getSource().getPlayerOrThrow(), false);
+        return 1;
+    }
+
+    private int mapsFaction(CommandContext<ServerCommandSource> context)
+            throws CommandSyntaxException {
+        ServerPlayerEntity player = context.getSource().getPlayerOrThrow();
+        Faction target = Faction.getByName(StringArgumentType.getString(context, "faction"));
+        if (target == null) {
+            new Message(Text.translatable("factions.gui.admin.options.maps.fail.no_faction"))
+                    .fail()
+                    .send(player, false);
+            return 0;
+        }
+
+        List<Territory> territories = MarkerSync.getTerritories(target.getID());
+        if (territories.isEmpty()) {
+            new Message(
+                            Text.translatable(
+                                    "factions.gui.admin.options.maps.faction.none",
+                                    target.getName()))
+                    .send(player, false);
+            return 1;
+        }
+
+        for (Territory territory : territories) {
+            Territory region = territory.region();
+            new Message(
+                            Text.translatable(
+                                    "factions.gui.admin.options.maps.faction",
+                                    target.getName(),
+                                    territory.level(),
+                                    territory.edges(),
+                                    territory.vertices(),
+                                    region == null ? "-" : region.vertices()))
+                    .send(player, false);
+        }
+        return 1;
+    }
+
+    private int storage(CommandContext<ServerCommandSource> context)
+            throws CommandSyntaxException {
+        new Message(
+                        Text.translatable(
+                                "factions.gui.admin.options.storage",
+                                Database.getStorage().name()))
+                .send(context.getSource().getPlayerOrThrow(), false);
+        return 1;
+    }
+
+    private int migrate(CommandContext<ServerCommandSource> context)
+            throws CommandSyntaxException {
+        ServerPlayerEntity player = context.getSource().getPlayerOrThrow();
+        String name = StringArgumentType.getString(context, "storage");
+
+        if (!Database.STORAGES.contains(name) || name.equals(Database.getStorage().name())) {
+            new Message(Text.translatable("factions.gui.admin.options.storage.fail.invalid", name))
+                    .fail()
+                    .send(player, false);
+            return 0;
+        }
+
+        Storage target = Database.createStorage(name);
+        try {
+            WriteBehind.migrate(target);
+        } catch (IOException e) {
+            FactionsMod.LOGGER.error("Failed to migrate factions data to {}", name, e);
+            new Message(Text.translatable("factions.gui.admin.options.storage.fail.migrate", name))
+                    .fail()
+                    .send(player, false);
+            return 0;
+        }
+
+        // so a restart loads the data from where it is now written
+        FactionsMod.CONFIG.STORAGE = name;
+        try {
+            FactionsMod.CONFIG.save();
+        } catch (IOException e) {
+            FactionsMod.LOGGER.error("Failed to save the factions config", e);
+            new Message(
+                            Text.translatable(
+                                    "factions.gui.admin.options.storage.fail.config", name, name))
+                    .fail()
+                    .send(player, false);
+            return 1;
+        }
+
+        new Message(Text.translatable("factions.gui.admin.options.storage.success", name))
+                .send(player, false);
+        return 1;
+    }
+
     public LiteralCommandNode<ServerCommandSource> getNode() {
         return CommandManager.literal("admin")
                 .requires(
@@ -224,6 +365,41 @@ public class AdminCommand implements Command {
                                                 "factions.admin.audit",
                                                 FactionsMod.CONFIG.REQUIRED_BYPASS_LEVEL))
                                 .executes(this::audit))
+                .then(
+                        CommandManager.literal("cache")
+                                .requires(
+                                        Requires.hasPerms(
+                                                "factions.admin.cache",
+                                                FactionsMod.CONFIG.REQUIRED_BYPASS_LEVEL))
+                                .executes(this::cache)
+                                .then(CommandManager.literal("reset").executes(this::resetCache)))
+                .then(
+                        CommandManager.literal("maps")
+                                .requires(
+                                        Requires.hasPerms(
+                                                "factions.admin.maps",
+                                                FactionsMod.CONFIG.REQUIRED_BYPASS_LEVEL))
+                                .executes(this::maps)
+                                .then(
+                                        CommandManager.argument(
+                                                        "faction", StringArgumentType.greedyString())
+                                                .suggests(Suggests.allFactions())
+                                                .executes(this::mapsFaction)))
+                .then(
+                        CommandManager.literal("storage")
+                                .requires(
+                                        Requires.hasPerms(
+                                                "factions.admin.storage",
+                                                FactionsMod.CONFIG.REQUIRED_BYPASS_LEVEL))
+                                .executes(this::storage)
+                                .then(
+                                        CommandManager.literal("migrate")
+                                                .then(
+                                                        CommandManager.argument(
+                                                                        "storage",
+                                                                        StringArgumentType.word())
+                                                                .suggests(STORAGES)
+                                                                .executes(this::migrate))))
                 .build();
     }
 }
@@ -95,10 +95,9 @@ public class ClaimCommand implements Command {
 
         // --- new: fetch paid vs buffer chunks ---
         List<Claim> paidChunks   = Claim.getPaidByFaction(factionId);
-        List<Claim> bufferChunks = Claim.getBufferByFaction(factionId);
 
         int paidCount   = paidChunks.size();
-        int bufferCount = bufferChunks.size();
+        int bufferCount = Claim.countBufferByFaction(factionId);
 
         // show “You have X paid, +Y buffer”
         new Message(
@@ -265,7 +264,7 @@ public class ClaimCommand implements Command {
         int requiredPower = FactionsSafe.requiredPowerToClaim(faction, FactionsMod.CONFIG.POWER.CLAIM_WEIGHT);
 
         int maxPower =
-                faction.getUsers().size() * FactionsMod.CONFIG.POWER.MEMBER
+                faction.getUserCount() * FactionsMod.CONFIG.POWER.MEMBER
                         + FactionsMod.CONFIG.POWER.BASE
                         + faction.getAdminPower();
 
@@ -293,7 +292,7 @@ public class ClaimCommand implements Command {
         int requiredPower = FactionsSafe.requiredPowerToClaim(faction, FactionsMod.CONFIG.POWER.CLAIM_WEIGHT);
 
         int maxPower =
-                faction.getUsers().size() * FactionsMod.CONFIG.POWER.MEMBER
+                faction.getUserCount() * FactionsMod.CONFIG.POWER.MEMBER
                         + FactionsMod.CONFIG.POWER.BASE
                         + faction.getAdminPower();
 
@@ -493,7 +492,6 @@ public class ClaimCommand implements Command {
                 return 0;
             }
         }
-        Claim.save();
         return 1;
     }
 
@@ -503,6 +501,7 @@ public class ClaimCommand implements Command {
 
         User user = Command.getUser(player);
         user.autoclaim = !user.autoclaim;
+        user.markDirty();
         Faction faction = Command.getUser(player).getFaction();
         if (faction == null) {
             new Message(Text.translatable("factions.command.fail.no_faction")).fail().send(player, false);
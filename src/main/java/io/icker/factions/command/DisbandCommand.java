@@ -33,7 +33,7 @@ public class DisbandCommand implements Command {
         Faction faction = user.getFaction();
         if (faction == null) return 0;
 
-        if (!faction.getSafe().isEmpty() && !confirm) {
+        if (!faction.isSafeEmpty() && !confirm) {
             new Message(Text.translatable("factions.command.disband.fail.safe_not_empty"))
                     .add(
                             new Message(
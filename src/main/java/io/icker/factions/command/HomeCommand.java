@@ -92,6 +92,7 @@ public class HomeCommand implements Command {
             player.teleport(
                     world, home.x, home.y, home.z, new HashSet<>(), home.yaw, home.pitch, false);
             user.homeCooldown = Date.from(Instant.now()).getTime();
+            user.markDirty();
 
             new Message(Text.translatable("factions.command.home.warp.success"))
                     .send(player, false);
@@ -154,7 +154,7 @@ public class InfoCommand implements Command {
                                         "factions.gui.info.allies.some",
                                         Text.literal(
                                                         Integer.toString(
-                                                                faction.getMutualAllies().size()))
+                                                                faction.getMutualAllyCount()))
                                                 .formatted(Formatting.WHITE))
                                 .formatted(Formatting.GREEN))
                 .add(mutualAllies)
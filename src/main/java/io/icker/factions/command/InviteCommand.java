@@ -88,6 +88,7 @@ public class InviteCommand implements Command {
         }
 
         faction.invites.add(target.getUuid());
+        faction.markDirty();
 
         new Message(
                         Text.translatable(
@@ -117,6 +118,7 @@ public class InviteCommand implements Command {
             return 0;
         }
         if (faction.invites.remove(target.getUuid())) {
+            faction.markDirty();
             new Message(
                             Text.translatable(
                                     "factions.command.invite.remove.success",
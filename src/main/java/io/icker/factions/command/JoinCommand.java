@@ -41,14 +41,17 @@ public class JoinCommand implements Command {
         }
 
         if (FactionsMod.CONFIG.MAX_FACTION_SIZE != -1
-                && faction.getUsers().size() >= FactionsMod.CONFIG.MAX_FACTION_SIZE) {
+                && faction.getUserCount() >= FactionsMod.CONFIG.MAX_FACTION_SIZE) {
             new Message(Text.translatable("factions.command.join.fail.faction_full"))
                     .fail()
                     .send(player, false);
             return 0;
         }
 
-        if (invited) faction.invites.remove(player.getUuid());
+        if (invited) {
+            faction.invites.remove(player.getUuid());
+            faction.markDirty();
+        }
         Command.getUser(player).joinFaction(faction.getID(), User.Rank.MEMBER);
         source.getServer().getPlayerManager().sendCommandTree(player);
 
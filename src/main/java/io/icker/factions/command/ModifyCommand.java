@@ -80,13 +80,8 @@ public class ModifyCommand implements Command {
                     Localization.raw("factions.command.modify.name.fail.name_too_long", player));
         }
 
-// case-insensitive duplicate check
-        String lower = name.toLowerCase(Locale.ROOT);
-        boolean taken = Faction.all().stream()
-                .map(Faction::getName)
-                .anyMatch(existing -> existing.toLowerCase(Locale.ROOT).equals(lower));
-
-        if (taken) {
+        // the name index ignores case
+        if (Faction.getByName(name) != null) {
             throw new Exception(
                     Localization.raw("factions.command.modify.name.fail.name_taken", player));
         }
@@ -12,6 +12,7 @@ import io.icker.factions.api.persistents.Faction;
 import io.icker.factions.api.persistents.Relationship;
 import io.icker.factions.api.persistents.Relationship.Permissions;
 import io.icker.factions.api.persistents.User;
+import io.icker.factions.core.ProtectionCache;
 import io.icker.factions.util.Command;
 import io.icker.factions.util.Message;
 
@@ -42,7 +43,8 @@ public class PermissionCommand implements Command {
             return 0;
         }
 
-        Relationship rel = sourceFaction.getRelationship(targetFaction.getID());
+        Relationship rel =
+                sourceFaction.getRelationship(targetFaction.getID()).copyFor(targetFaction.getID());
 
         Permissions permission;
 
@@ -139,6 +141,8 @@ public class PermissionCommand implements Command {
         } else {
             faction.guest_permissions.remove(permission);
         }
+        ProtectionCache.invalidate(faction);
+        faction.markDirty();
 
         new Message(Text.translatable("factions.command.permissions.change.success"))
                 .send(player, false);
@@ -312,7 +316,7 @@ public class PermissionCommand implements Command {
 
         User user = User.get(target.getUuid());
         user.bypass = enable;
-        User.save();
+        user.markDirty();
 
         new Message(Text.translatable(
                 "factions.command.permissions.bypass.success",
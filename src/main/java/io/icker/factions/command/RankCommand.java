@@ -85,6 +85,7 @@ public class RankCommand implements Command {
                         Localization.raw("factions.command.rank.promote.fail.owner", initiator));
             }
         }
+        target.markDirty();
     }
 
     private int demote(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
@@ -156,6 +157,7 @@ public class RankCommand implements Command {
                     throw new Exception(
                             Localization.raw("factions.command.rank.demote.fail.owner", initiator));
         }
+        target.markDirty();
     }
 
     private int transfer(CommandContext<ServerCommandSource> context)
@@ -178,6 +180,8 @@ public class RankCommand implements Command {
         if (Command.getUser(player).getFaction().getID().equals(targetFaction)) {
             targetUser.rank = User.Rank.OWNER;
             Command.getUser(player).rank = User.Rank.LEADER;
+            targetUser.markDirty();
+            Command.getUser(player).markDirty();
 
             context.getSource().getServer().getPlayerManager().sendCommandTree(player);
             context.getSource().getServer().getPlayerManager().sendCommandTree(target);
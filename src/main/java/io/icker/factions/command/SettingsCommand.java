@@ -20,6 +20,7 @@ public class SettingsCommand implements Command {
         ServerPlayerEntity player = context.getSource().getPlayerOrThrow();
         User user = User.get(player.getUuid());
         user.chat = option;
+        user.markDirty();
 
         // derive the lower-case name from the enum
         String chatName = option.name().toLowerCase();
@@ -39,6 +40,7 @@ public class SettingsCommand implements Command {
         ServerPlayerEntity player = context.getSource().getPlayerOrThrow();
         User user = User.get(player.getUuid());
         user.sounds = option;
+        user.markDirty();
 
         // derive the lower-case name from the enum
         String soundName = option.name().toLowerCase();
@@ -60,6 +62,7 @@ public class SettingsCommand implements Command {
         User config = User.get(player.getUuid());
         boolean radar = !config.radar;
         config.radar = radar;
+        config.markDirty();
 
         new Message(Text.translatable("factions.command.settings.radar"))
                 .filler("·")
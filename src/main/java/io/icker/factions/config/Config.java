@@ -18,6 +18,7 @@ import org.jetbrains.annotations.Nullable;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.List;
 
@@ -30,17 +31,20 @@ public class Config {
                     .resolve("factions.json")
                     .toFile();
 
+    private static Gson gson() {
+        return new GsonBuilder()
+                .setPrettyPrinting()
+                .disableHtmlEscaping()
+                .serializeNulls()
+                .registerTypeAdapter(HomeConfig.class, new Deserializer<>(HomeConfig.class))
+                .registerTypeAdapter(PowerConfig.class, new Deserializer<>(PowerConfig.class))
+                .registerTypeAdapter(SafeConfig.class, new Deserializer<>(SafeConfig.class))
+                .registerTypeAdapter(DecayConfig.class, new Deserializer<>(DecayConfig.class))
+                .create();
+    }
+
     public static Config load() {
-        Gson gson =
-                new GsonBuilder()
-                        .setPrettyPrinting()
-                        .disableHtmlEscaping()
-                        .serializeNulls()
-                        .registerTypeAdapter(HomeConfig.class, new Deserializer<>(HomeConfig.class))
-                        .registerTypeAdapter(PowerConfig.class, new Deserializer<>(PowerConfig.class))
-                        .registerTypeAdapter(SafeConfig.class, new Deserializer<>(SafeConfig.class))
-                        .registerTypeAdapter(DecayConfig.class, new Deserializer<>(DecayConfig.class))  // added
-                        .create();
+        Gson gson = gson();
 
         try {
             if (!file.exists()) {
@@ -71,6 +75,13 @@ public class Config {
         }
     }
 
+    /** Writes the config back to its file, for settings changed by a command. */
+    public void save() throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            gson().toJson(this, writer);
+        }
+    }
+
     @SerializedName("version")
     public int VERSION = REQUIRED_VERSION;
 
@@ -112,6 +123,22 @@ public class Config {
     @SerializedName("language")
     public String LANGUAGE = "en_us";
 
+    /** Minimum time between background writes of a changed data file */
+    @SerializedName("saveIntervalSeconds")
+    public int SAVE_INTERVAL_SECONDS = 5;
+
+    /** Save each faction to its own file instead of one file for all of them */
+    @SerializedName("shardedFactions")
+    public boolean SHARDED_FACTIONS = false;
+
+    /** Where factions data is kept: "nbt" files, or "h2" for an embedded SQL database */
+    @SerializedName("storage")
+    public String STORAGE = "nbt";
+
+    /** How the Dynmap, BlueMap and squaremap markers follow claim changes */
+    @SerializedName("maps")
+    public MapConfig MAPS = new MapConfig();
+
     // --- New decay settings ---
     @SerializedName("decay")
     public DecayConfig DECAY = new DecayConfig();
@@ -144,6 +171,39 @@ public class Config {
                 List.of(Relationship.Permissions.USE_BLOCKS, Relationship.Permissions.USE_ENTITIES);
     }
 
+    public static class MapConfig {
+        /** Ticks a faction's claims must stay unchanged before its markers are updated */
+        @SerializedName("updateDelayTicks")
+        public int UPDATE_DELAY_TICKS = 20;
+
+        /** Most ticks a faction that keeps changing waits for its markers to be updated */
+        @SerializedName("maxUpdateDelayTicks")
+        public int MAX_UPDATE_DELAY_TICKS = 200;
+
+        /** Most outlines recomputed, and most factions' markers replaced, per tick */
+        @SerializedName("updatesPerTick")
+        public int UPDATES_PER_TICK = 4;
+
+        /**
+         * Chunks along each side of the regions outlined for maps zoomed out, or 0 for no region
+         * outlines. Squaremap can't switch by zoom and always shows the regions instead
+         */
+        @SerializedName("regionOutlineChunks")
+        public int REGION_OUTLINE_CHUNKS = 0;
+
+        /** Fewest corners a faction's outline in a dimension needs to get a region outline */
+        @SerializedName("regionOutlineMinVertices")
+        public int REGION_OUTLINE_MIN_VERTICES = 2000;
+
+        /** Lowest Dynmap zoom level showing the chunk outlines instead of the region outlines */
+        @SerializedName("dynmapDetailZoom")
+        public int DYNMAP_DETAIL_ZOOM = 3;
+
+        /** Farthest BlueMap camera distance showing the chunk outlines instead of the regions */
+        @SerializedName("bluemapDetailDistance")
+        public double BLUEMAP_DETAIL_DISTANCE = 2000;
+    }
+
     /** Configuration for faction decay based on inactivity */
     public static class DecayConfig {
         @SerializedName("enabled")
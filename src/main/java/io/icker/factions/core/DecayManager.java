@@ -77,7 +77,7 @@ public class DecayManager {
 
     // Send a single summary message to all online members of a faction
     private static void notifyFaction(MinecraftServer server, Faction faction, String message) {
-        for (User u : User.getByFaction(faction.getID())) {
+        for (User u : User.getOnlineByFaction(faction.getID())) {
             ServerPlayerEntity p = server.getPlayerManager().getPlayer(u.getID());
             if (p != null) {
                 p.sendMessage(Text.literal(message), false);
@@ -128,7 +128,7 @@ public class DecayManager {
                     );
                 }
                 // broadcast to other online faction members
-                for (User member : User.getByFaction(faction.getID())) {
+                for (User member : User.getOnlineByFaction(faction.getID())) {
                     if (member.getID().equals(user.getID())) continue;
                     ServerPlayerEntity m = server.getPlayerManager().getPlayer(member.getID());
                     if (m != null) {
@@ -174,11 +174,6 @@ public class DecayManager {
                     }
                 }
                 if (!sharesDimension) continue;
-
-
-                // 3) Persist
-                User.save();
-                Faction.save();
             }
         }
     }
@@ -22,6 +22,5 @@ public class FactionDisbandManager {
                 f.remove();
             }
         }
-        Faction.save();
     }
 }
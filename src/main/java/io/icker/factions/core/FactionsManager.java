@@ -62,7 +62,7 @@ public class FactionsManager {
     }
 
     private static void factionModified(Faction faction) {
-        ServerPlayerEntity[] players = faction.getUsers().stream()
+        ServerPlayerEntity[] players = User.getOnlineByFaction(faction.getID()).stream()
                 .map(u -> playerManager.getPlayer(u.getID()))
                 .filter(p -> p != null)
                 .toArray(ServerPlayerEntity[]::new);
@@ -1,13 +1,16 @@
 package io.icker.factions.core;
 
 import io.icker.factions.FactionsMod;
+import io.icker.factions.api.events.ExplosionChunks;
 import io.icker.factions.api.events.PlayerEvents;
 import io.icker.factions.api.persistents.Claim;
 import io.icker.factions.api.persistents.Faction;
 import io.icker.factions.api.persistents.Relationship.Permissions;
+import io.icker.factions.api.persistents.RelationshipMatrix;
 import io.icker.factions.api.persistents.User;
 import io.icker.factions.core.InteractionsUtil.InteractionsUtilActions;
 import io.icker.factions.mixin.BucketItemAccessor;
+import io.icker.factions.util.DimensionRegistry;
 import io.icker.factions.mixin.ItemInvoker;
 import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
 import net.fabricmc.fabric.api.event.player.UseItemCallback;
@@ -20,12 +23,12 @@ import net.minecraft.fluid.Fluids;
 import net.minecraft.item.BucketItem;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemUsageContext;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.ActionResult;
 import net.minecraft.util.Hand;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
-import net.minecraft.world.BlockView;
 import net.minecraft.world.RaycastContext;
 import net.minecraft.world.RaycastContext.FluidHandling;
 import net.minecraft.world.World;
@@ -36,7 +39,7 @@ import java.util.Objects;
 public class InteractionManager {
     public static void register() {
         PlayerBlockBreakEvents.BEFORE.register(InteractionManager::onBreakBlock);
-        PlayerEvents.EXPLODE_BLOCK.register(InteractionManager::onExplodeBlock);
+        PlayerEvents.EXPLODE_CHUNKS.register(InteractionManager::onExplodeChunks);
         PlayerEvents.EXPLODE_DAMAGE.register(InteractionManager::onExplodeDamage);
         UseItemCallback.EVENT.register(InteractionManager::onUseBucket);
         PlayerEvents.IS_INVULNERABLE.register(InteractionManager::isInvulnerableTo);
@@ -57,43 +60,44 @@ public class InteractionManager {
         return !result;
     }
 
-    private static ActionResult onExplodeBlock(
-            Explosion explosion, BlockView world, BlockPos pos, BlockState state) {
-        if (explosion.getCausingEntity() != null
-                && explosion.getCausingEntity() instanceof PlayerEntity) {
-            ActionResult result =
-                    checkPermissions(
-                            (PlayerEntity) explosion.getCausingEntity(),
-                            pos,
-                            explosion.getWorld(),
-                            Permissions.BREAK_BLOCKS);
-            if (result == ActionResult.FAIL) {
-                InteractionsUtil.warn(
-                        (PlayerEntity) explosion.getCausingEntity(),
-                        InteractionsUtilActions.BREAK_BLOCKS);
+    private static void onExplodeChunks(
+            Explosion explosion, ServerWorld world, ExplosionChunks chunks) {
+        int dimension = DimensionRegistry.of(world);
+
+        if (explosion.getCausingEntity() instanceof PlayerEntity player) {
+            // the player is warned by ExplosionProtection once a block is actually refused
+            for (int i = 0; i < chunks.size(); i++) {
+                if (chunks.isDecided(i)) continue;
+                ActionResult result =
+                        checkPermissions(
+                                player,
+                                chunks.getX(i),
+                                chunks.getZ(i),
+                                dimension,
+                                Permissions.BREAK_BLOCKS);
+                chunks.vote(i, result);
             }
-            return result;
         } else {
-            if (!FactionsMod.CONFIG.BLOCK_TNT) return ActionResult.PASS;
+            if (!FactionsMod.CONFIG.BLOCK_TNT) return;
 
-            String dimension = explosion.getWorld().getRegistryKey().getValue().toString();
-            ChunkPos chunkPosition = explosion.getWorld().getChunk(pos).getPos();
+            for (int i = 0; i < chunks.size(); i++) {
+                if (chunks.isDecided(i)) continue;
 
-            Claim claim = Claim.get(chunkPosition.x, chunkPosition.z, dimension);
-            if (claim == null) return ActionResult.PASS;
+                Claim claim = Claim.get(chunks.getX(i), chunks.getZ(i), dimension);
+                if (claim == null) continue;
 
-            Faction claimFaction = claim.getFaction();
+                Faction claimFaction = claim.getFaction();
 
-            if (claimFaction.getClaims().size() * FactionsMod.CONFIG.POWER.CLAIM_WEIGHT
-                    > claimFaction.getPower()) {
-                return ActionResult.PASS;
-            }
+                if (!claimFaction.hasSufficientClaimPower()) {
+                    continue;
+                }
 
-            if (claimFaction.guest_permissions.contains(Permissions.BREAK_BLOCKS)) {
-                return ActionResult.PASS;
-            }
+                if (claimFaction.guest_permissions.contains(Permissions.BREAK_BLOCKS)) {
+                    continue;
+                }
 
-            return ActionResult.FAIL;
+                chunks.vote(i, ActionResult.FAIL);
+            }
         }
     }
 
@@ -115,7 +119,7 @@ public class InteractionManager {
         } else {
             if (!FactionsMod.CONFIG.BLOCK_TNT) return ActionResult.PASS;
 
-            String dimension = explosion.getWorld().getRegistryKey().getValue().toString();
+            int dimension = DimensionRegistry.of(explosion.getWorld());
             ChunkPos chunkPosition = explosion.getWorld().getChunk(entity.getBlockPos()).getPos();
 
             Claim claim = Claim.get(chunkPosition.x, chunkPosition.z, dimension);
@@ -123,8 +127,7 @@ public class InteractionManager {
 
             Faction claimFaction = claim.getFaction();
 
-            if (claimFaction.getClaims().size() * FactionsMod.CONFIG.POWER.CLAIM_WEIGHT
-                    > claimFaction.getPower()) {
+            if (!claimFaction.hasSufficientClaimPower()) {
                 return ActionResult.PASS;
             }
 
@@ -211,7 +214,7 @@ public class InteractionManager {
         }
 
         assert targetFaction != null;
-        if (sourceFaction.isMutualAllies(targetFaction.getID())) {
+        if (sourceFaction.isMutualAllies(targetFaction)) {
             return ActionResult.SUCCESS;
         }
 
@@ -220,6 +223,16 @@ public class InteractionManager {
 
     private static ActionResult checkPermissions(
             PlayerEntity player, BlockPos position, World world, Permissions permission) {
+        return checkPermissions(
+                player,
+                position.getX() >> 4,
+                position.getZ() >> 4,
+                DimensionRegistry.of(world),
+                permission);
+    }
+
+    private static ActionResult checkPermissions(
+            PlayerEntity player, int chunkX, int chunkZ, int dimension, Permissions permission) {
         if (!FactionsMod.CONFIG.CLAIM_PROTECTION) {
             return ActionResult.PASS;
         }
@@ -229,16 +242,28 @@ public class InteractionManager {
             return ActionResult.PASS;
         }
 
-        String dimension = world.getRegistryKey().getValue().toString();
-        ChunkPos chunkPosition = world.getChunk(position).getPos();
+        return ProtectionCache.get(
+                user,
+                chunkX,
+                chunkZ,
+                dimension,
+                permission,
+                () -> resolvePermissions(player, user, chunkX, chunkZ, dimension, permission));
+    }
 
-        Claim claim = Claim.get(chunkPosition.x, chunkPosition.z, dimension);
+    private static ActionResult resolvePermissions(
+            PlayerEntity player,
+            User user,
+            int chunkX,
+            int chunkZ,
+            int dimension,
+            Permissions permission) {
+        Claim claim = Claim.get(chunkX, chunkZ, dimension);
         if (claim == null) return ActionResult.PASS;
 
         Faction claimFaction = claim.getFaction();
 
-        if (claimFaction.getClaims().size() * FactionsMod.CONFIG.POWER.CLAIM_WEIGHT
-                > claimFaction.getPower()) {
+        if (!claimFaction.hasSufficientClaimPower()) {
             return ActionResult.PASS;
         }
 
@@ -269,14 +294,14 @@ public class InteractionManager {
 
         if (FactionsMod.CONFIG.RELATIONSHIPS.ALLY_OVERRIDES_PERMISSIONS) {
             assert userFaction != null;
-            if (claimFaction.isMutualAllies(userFaction.getID())
+            if (claimFaction.isMutualAllies(userFaction)
                     && claim.accessLevel == User.Rank.MEMBER) {
                 return ActionResult.SUCCESS;
             }
         }
 
         assert userFaction != null;
-        if (claimFaction.getRelationship(userFaction.getID()).permissions.contains(permission)
+        if (RelationshipMatrix.hasPermission(claimFaction, userFaction, permission)
                 && claim.accessLevel == User.Rank.MEMBER) {
             return ActionResult.SUCCESS;
         }
@@ -0,0 +1,176 @@
+package io.icker.factions.core;
+
+import io.icker.factions.api.events.ClaimEvents;
+import io.icker.factions.api.events.FactionEvents;
+import io.icker.factions.api.events.RelationshipEvents;
+import io.icker.factions.api.persistents.Claim;
+import io.icker.factions.api.persistents.Faction;
+import io.icker.factions.api.persistents.Relationship.Permissions;
+import io.icker.factions.api.persistents.User;
+import io.icker.factions.util.ChunkKey;
+
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.util.ActionResult;
+
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Remembers recent claim permission decisions per player, keyed by chunk and permission, so
+ * repeated interactions in the same chunk skip re-resolving the claim, faction and relationships.
+ *
+ * <p>Entries are stamped with a global epoch plus the epochs of the claim's faction and the
+ * player's faction. Anything that can change a decision bumps one of those epochs, so stale
+ * entries are never served. Changes that no event covers call {@link #invalidate(UUID)} or {@link
+ * #invalidateAll()} directly. Only touched from the server thread.
+ */
+public class ProtectionCache {
+    private static final int SLOTS = 64;
+
+    private static final HashMap<UUID, Entry[]> PLAYERS = new HashMap<>();
+    private static final HashMap<UUID, Integer> FACTION_EPOCHS = new HashMap<>();
+    private static int globalEpoch = 0;
+
+    private static long hits = 0;
+    private static long misses = 0;
+
+    private static class Entry {
+        long chunk;
+        int dimension;
+        Permissions permission;
+        int global;
+        UUID claimFaction;
+        int claimEpoch;
+        UUID userFaction;
+        int userEpoch;
+        User.Rank rank;
+        ActionResult result;
+    }
+
+    public static void register() {
+        ClaimEvents.ADD.register(claim -> invalidateAll());
+        ClaimEvents.REMOVE.register((x, z, level, faction) -> invalidateAll());
+        ClaimEvents.MODIFY.register(claim -> invalidate(claim.getFaction()));
+
+        FactionEvents.MEMBER_JOIN.register((faction, user) -> invalidate(faction));
+        FactionEvents.MEMBER_LEAVE.register((faction, user) -> invalidate(faction));
+        FactionEvents.MODIFY.register(ProtectionCache::invalidate);
+        FactionEvents.POWER_CHANGE.register((faction, oldPower) -> invalidate(faction));
+        FactionEvents.DISBAND.register(faction -> invalidateAll());
+        FactionEvents.REMOVE_ALL_CLAIMS.register(faction -> invalidateAll());
+
+        RelationshipEvents.NEW_DECLARATION.register(rel -> invalidateAll());
+        RelationshipEvents.NEW_MUTUAL.register(rel -> invalidateAll());
+        RelationshipEvents.END_MUTUAL.register((rel, oldStatus) -> invalidateAll());
+
+        ServerPlayConnectionEvents.DISCONNECT.register(
+                (handler, server) -> PLAYERS.remove(handler.getPlayer().getUuid()));
+    }
+
+    /**
+     * Returns the cached decision for the player, or computes and caches it.
+     *
+     * @param user the player's user; bypass must already have been handled by the caller
+     */
+    public static ActionResult get(
+            User user,
+            int chunkX,
+            int chunkZ,
+            int dimension,
+            Permissions permission,
+            Supplier<ActionResult> compute) {
+        long chunk = ChunkKey.pack(chunkX, chunkZ);
+        Entry[] entries = PLAYERS.computeIfAbsent(user.getID(), id -> new Entry[SLOTS]);
+        int slot = slot(chunk, dimension, permission);
+
+        Entry entry = entries[slot];
+        if (entry != null && isValid(entry, user, chunk, dimension, permission)) {
+            hits++;
+            return entry.result;
+        }
+        misses++;
+
+        // Stamp before computing so a change made while computing leaves the entry stale
+        if (entry == null) entry = entries[slot] = new Entry();
+        entry.chunk = chunk;
+        entry.dimension = dimension;
+        entry.permission = permission;
+        entry.global = globalEpoch;
+        entry.userFaction = user.getFactionID();
+        entry.userEpoch = epochOf(entry.userFaction);
+        entry.claimFaction = claimFaction(chunkX, chunkZ, dimension);
+        entry.claimEpoch = epochOf(entry.claimFaction);
+        entry.rank = user.rank;
+        entry.result = null;
+
+        ActionResult result = compute.get();
+        entry.result = result;
+        return result;
+    }
+
+    public static void invalidate(Faction faction) {
+        if (faction != null) invalidate(faction.getID());
+    }
+
+    /** Drops every cached decision involving the faction, either as claim owner or as member. */
+    public static void invalidate(UUID factionId) {
+        FACTION_EPOCHS.merge(factionId, 1, Integer::sum);
+    }
+
+    /** Drops every cached decision. */
+    public static void invalidateAll() {
+        globalEpoch++;
+    }
+
+    public static long getHits() {
+        return hits;
+    }
+
+    public static long getMisses() {
+        return misses;
+    }
+
+    public static int getCachedPlayers() {
+        return PLAYERS.size();
+    }
+
+    public static void resetStats() {
+        hits = 0;
+        misses = 0;
+    }
+
+    private static boolean isValid(
+            Entry entry, User user, long chunk, int dimension, Permissions permission) {
+        if (entry.result == null
+                || entry.chunk != chunk
+                || entry.dimension != dimension
+                || entry.permission != permission
+                || entry.global != globalEpoch
+                || entry.rank != user.rank) {
+            return false;
+        }
+
+        return Objects.equals(entry.userFaction, user.getFactionID())
+                && entry.userEpoch == epochOf(entry.userFaction)
+                && entry.claimEpoch == epochOf(entry.claimFaction);
+    }
+
+    private static UUID claimFaction(int chunkX, int chunkZ, int dimension) {
+        Claim claim = Claim.get(chunkX, chunkZ, dimension);
+        return claim == null ? null : claim.factionID;
+    }
+
+    private static int epochOf(UUID factionId) {
+        if (factionId == null) return 0;
+        Integer epoch = FACTION_EPOCHS.get(factionId);
+        return epoch == null ? 0 : epoch;
+    }
+
+    private static int slot(long chunk, int dimension, Permissions permission) {
+        long h = (chunk * 31 + dimension) * 31 + permission.ordinal();
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 58) & (SLOTS - 1);
+    }
+}
@@ -1,9 +1,9 @@
 package io.icker.factions.core;
 
 import io.icker.factions.api.events.MiscEvents;
-import io.icker.factions.api.persistents.Claim;
 import io.icker.factions.api.persistents.Faction;
 import io.icker.factions.api.persistents.User;
+import io.icker.factions.database.WriteBehind;
 import io.icker.factions.util.Message;
 
 import net.fabricmc.fabric.api.networking.v1.PacketSender;
@@ -19,10 +19,9 @@ public class ServerManager {
         MiscEvents.ON_SAVE.register(ServerManager::save);
     }
 
+    // Every store at once, each on its own writer
     private static void save(MinecraftServer server) {
-        Claim.save();
-        Faction.save();
-        User.save();
+        WriteBehind.flushAll();
     }
 
     private static void playerJoin(
@@ -32,7 +32,7 @@ public class SoundManager {
 
     private static void playFaction(
             Faction faction, RegistryEntry.Reference<SoundEvent> soundEvent, float pitch) {
-        for (User user : faction.getUsers()) {
+        for (User user : User.getOnlineByFaction(faction.getID())) {
             PlayerEntity player = FactionsManager.playerManager.getPlayer(user.getID());
             if (player != null
                     && (user.sounds == User.SoundMode.ALL
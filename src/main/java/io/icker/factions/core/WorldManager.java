@@ -6,6 +6,7 @@ import io.icker.factions.api.events.PlayerEvents;
 import io.icker.factions.api.persistents.Claim;
 import io.icker.factions.api.persistents.Faction;
 import io.icker.factions.api.persistents.User;
+import io.icker.factions.util.DimensionRegistry;
 import io.icker.factions.util.FactionsSafe;
 import io.icker.factions.util.Message;
 
@@ -30,7 +31,7 @@ public class WorldManager {
         player.getEntityWorld().getServer().execute(() -> {
             User user = User.get(player.getUuid());
             ServerWorld world = player.getEntityWorld();
-            String dimension = world.getRegistryKey().getValue().toString();
+            int dimension = DimensionRegistry.of(world);
 
             // Use getChunkManager().getWorldChunk which returns null if not loaded
             // instead of forcing a load
@@ -47,7 +48,7 @@ public class WorldManager {
                 Faction faction = user.getFaction();
                 int requiredPower = FactionsSafe.requiredPowerToClaim(faction, FactionsMod.CONFIG.POWER.CLAIM_WEIGHT);
                 int maxPower =
-                        faction.getUsers().size() * FactionsMod.CONFIG.POWER.MEMBER
+                        faction.getUserCount() * FactionsMod.CONFIG.POWER.MEMBER
                                 + FactionsMod.CONFIG.POWER.BASE
                                 + faction.getAdminPower();
 
@@ -56,8 +57,9 @@ public class WorldManager {
                             .fail()
                             .send(player, false);
                     user.autoclaim = false;
+                    user.markDirty();
                 } else {
-                    faction.addClaim(chunkPos.x, chunkPos.z, dimension);
+                    faction.addClaim(chunkPos.x, chunkPos.z, DimensionRegistry.getName(dimension));
                     claim = Claim.get(chunkPos.x, chunkPos.z, dimension);
                     new Message(
                             Text.translatable(
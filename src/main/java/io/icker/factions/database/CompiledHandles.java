@@ -0,0 +1,43 @@
+package io.icker.factions.database;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Holds the handles of one {@link CompiledSerializer}. Never loaded under its own name: its bytes
+ * are defined again as a hidden class for every compiled class, with that class's handles as class
+ * data, so each copy has its own static final fields for the JIT to treat as constants.
+ */
+final class CompiledHandles implements CompiledSerializer.Accessor {
+    // (Object, NbtCompound) -> void
+    private static final MethodHandle WRITE;
+    // (NbtCompound) -> Object
+    private static final MethodHandle READ;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            WRITE =
+                    MethodHandles.classDataAt(
+                            lookup, ConstantDescs.DEFAULT_NAME, MethodHandle.class, 0);
+            READ =
+                    MethodHandles.classDataAt(
+                            lookup, ConstantDescs.DEFAULT_NAME, MethodHandle.class, 1);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public void write(Object item, NbtCompound compound) throws Throwable {
+        WRITE.invokeExact(item, compound);
+    }
+
+    @Override
+    public Object read(NbtCompound compound) throws Throwable {
+        return (Object) READ.invokeExact(compound);
+    }
+}
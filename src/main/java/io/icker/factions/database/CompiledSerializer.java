@@ -0,0 +1,348 @@
+package io.icker.factions.database;
+
+import net.minecraft.nbt.NbtByte;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtDouble;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtFloat;
+import net.minecraft.nbt.NbtInt;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtLong;
+import net.minecraft.nbt.NbtShort;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Serializer for a class made of {@link Field}-annotated fields, compiled once per class and
+ * registered in {@link SerializerRegistry}. Fields are accessed through method handles, the
+ * serializers of nested types and list elements are looked up while compiling, and primitive fields
+ * are read and written without boxing, so no reflection happens per object.
+ *
+ * <p>The property handles of a class are chained into one write and one read handle, held in
+ * static final fields of a {@link CompiledHandles} hidden class defined for that class alone. The
+ * JIT treats them as constants and can inline the whole chain, down to the field accesses; the
+ * properties are records so their handles are trusted as constants too.
+ */
+final class CompiledSerializer<T> {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final byte[] TEMPLATE = template();
+    // (Property, Object, NbtCompound) -> void
+    private static final MethodHandle WRITE;
+    private static final MethodHandle READ;
+
+    static {
+        try {
+            MethodType type =
+                    MethodType.methodType(void.class, Object.class, NbtCompound.class);
+            WRITE = LOOKUP.findVirtual(Property.class, "write", type);
+            READ =
+                    LOOKUP.findStatic(
+                            CompiledSerializer.class,
+                            "read",
+                            type.insertParameterTypes(0, Property.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<T> clazz;
+    private final Accessor accessor;
+
+    /** What a {@link CompiledHandles} class does with its handles. */
+    interface Accessor {
+        void write(Object item, NbtCompound compound) throws Throwable;
+
+        Object read(NbtCompound compound) throws Throwable;
+    }
+
+    /** Compiles and registers the class and any nested classes it needs, unless already done. */
+    static synchronized <T> void register(Class<T> clazz) {
+        if (SerializerRegistry.contains(clazz)) return;
+
+        CompiledSerializer<T> serializer = new CompiledSerializer<>(clazz);
+        SerializerRegistry.register(clazz, serializer::serialize, serializer::deserialize);
+    }
+
+    private CompiledSerializer(Class<T> clazz) {
+        this.clazz = clazz;
+
+        try {
+            Constructor<T> ctor = clazz.getDeclaredConstructor();
+            ctor.setAccessible(true);
+            MethodHandle constructor =
+                    LOOKUP.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+
+            List<MethodHandle> writes = new ArrayList<>();
+            List<MethodHandle> reads = new ArrayList<>();
+            for (java.lang.reflect.Field field : clazz.getDeclaredFields()) {
+                Field annotation = field.getAnnotation(Field.class);
+                if (annotation == null) continue;
+
+                field.setAccessible(true);
+                Property property = property(annotation.value(), field);
+                writes.add(WRITE.bindTo(property));
+                reads.add(READ.bindTo(property));
+            }
+            MethodHandle write = sequence(writes);
+            MethodHandle read = sequence(reads);
+
+            // (NbtCompound) -> Object: constructs the item, reads into it and returns it
+            MethodHandle fill =
+                    MethodHandles.foldArguments(
+                            MethodHandles.dropArguments(
+                                    MethodHandles.identity(Object.class), 1, NbtCompound.class),
+                            read);
+            MethodHandle create = MethodHandles.foldArguments(fill, constructor);
+
+            MethodHandles.Lookup holder =
+                    LOOKUP.defineHiddenClassWithClassData(TEMPLATE, List.of(write, create), true);
+            this.accessor = (Accessor) holder.lookupClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot compile serializer for " + clazz.getName(), e);
+        }
+    }
+
+    private NbtCompound serialize(T item) {
+        NbtCompound compound = new NbtCompound();
+        try {
+            accessor.write(item, compound);
+        } catch (Throwable e) {
+            throw failure("serialize", e);
+        }
+        return compound;
+    }
+
+    private T deserialize(NbtCompound compound) {
+        try {
+            return clazz.cast(accessor.read(compound));
+        } catch (Throwable e) {
+            throw failure("deserialize", e);
+        }
+    }
+
+    private RuntimeException failure(String action, Throwable e) {
+        if (e instanceof RuntimeException runtime) return runtime;
+        if (e instanceof Error error) throw error;
+        return new IllegalStateException("Failed to " + action + " " + clazz.getName(), e);
+    }
+
+    /**
+     * Runs the (Object, NbtCompound) -> void handles in order, nested as a balanced tree: a chain
+     * of one fold per property soon gets deeper than the JIT will inline.
+     */
+    private static MethodHandle sequence(List<MethodHandle> handles) {
+        if (handles.isEmpty()) {
+            return MethodHandles.empty(
+                    MethodType.methodType(void.class, Object.class, NbtCompound.class));
+        }
+        if (handles.size() == 1) return handles.get(0);
+
+        int middle = handles.size() / 2;
+        return MethodHandles.foldArguments(
+                sequence(handles.subList(middle, handles.size())),
+                sequence(handles.subList(0, middle)));
+    }
+
+    private static void read(Property property, Object item, NbtCompound compound)
+            throws Throwable {
+        NbtElement value = compound.get(property.key());
+        if (value != null) property.read(item, value);
+    }
+
+    private static byte[] template() {
+        try (InputStream in =
+                CompiledSerializer.class.getResourceAsStream("CompiledHandles.class")) {
+            if (in == null) throw new IllegalStateException("CompiledHandles.class not found");
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Property property(String key, java.lang.reflect.Field field)
+            throws ReflectiveOperationException {
+        Class<?> type = field.getType();
+        MethodHandle getter = LOOKUP.unreflectGetter(field);
+        MethodHandle setter = LOOKUP.unreflectSetter(field);
+
+        // Primitives keep their own type so nothing is boxed
+        if (type.isPrimitive()) {
+            getter = getter.asType(MethodType.methodType(type, Object.class));
+            setter = setter.asType(MethodType.methodType(void.class, Object.class, type));
+
+            if (type == int.class) return new IntProperty(key, getter, setter);
+            if (type == long.class) return new LongProperty(key, getter, setter);
+            if (type == double.class) return new DoubleProperty(key, getter, setter);
+            if (type == float.class) return new FloatProperty(key, getter, setter);
+            if (type == boolean.class) return new BooleanProperty(key, getter, setter);
+            if (type == byte.class) return new ByteProperty(key, getter, setter);
+            if (type == short.class) return new ShortProperty(key, getter, setter);
+            throw new IllegalArgumentException("Unsupported field type " + type + " for " + key);
+        }
+
+        getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+        setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+        if (List.class.isAssignableFrom(type) && !SerializerRegistry.contains(type)) {
+            Class<?> element =
+                    (Class<?>)
+                            ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            register(element);
+            return new ListProperty(
+                    key,
+                    getter,
+                    setter,
+                    SerializerRegistry.serializer(element),
+                    SerializerRegistry.deserializer(element));
+        }
+
+        register(type);
+        return new ObjectProperty(
+                key,
+                getter,
+                setter,
+                SerializerRegistry.serializer(type),
+                SerializerRegistry.deserializer(type));
+    }
+
+    // The getter is (Object) -> field type, and the setter (Object, field type) -> void
+    private interface Property {
+        String key();
+
+        void write(Object item, NbtCompound compound) throws Throwable;
+
+        void read(Object item, NbtElement value) throws Throwable;
+    }
+
+    private record IntProperty(String key, MethodHandle getter, MethodHandle setter)
+            implements Property {
+        public void write(Object item, NbtCompound compound) throws Throwable {
+            compound.put(key, NbtInt.of((int) getter.invokeExact(item)));
+        }
+
+        public void read(Object item, NbtElement value) throws Throwable {
+            setter.invokeExact(item, ((NbtInt) value).intValue());
+        }
+    }
+
+    private record LongProperty(String key, MethodHandle getter, MethodHandle setter)
+            implements Property {
+        public void write(Object item, NbtCompound compound) throws Throwable {
+            compound.put(key, NbtLong.of((long) getter.invokeExact(item)));
+        }
+
+        public void read(Object item, NbtElement value) throws Throwable {
+            setter.invokeExact(item, ((NbtLong) value).longValue());
+        }
+    }
+
+    private record DoubleProperty(String key, MethodHandle getter, MethodHandle setter)
+            implements Property {
+        public void write(Object item, NbtCompound compound) throws Throwable {
+            compound.put(key, NbtDouble.of((double) getter.invokeExact(item)));
+        }
+
+        public void read(Object item, NbtElement value) throws Throwable {
+            setter.invokeExact(item, ((NbtDouble) value).doubleValue());
+        }
+    }
+
+    private record FloatProperty(String key, MethodHandle getter, MethodHandle setter)
+            implements Property {
+        public void write(Object item, NbtCompound compound) throws Throwable {
+            compound.put(key, NbtFloat.of((float) getter.invokeExact(item)));
+        }
+
+        public void read(Object item, NbtElement value) throws Throwable {
+            setter.invokeExact(item, ((NbtFloat) value).floatValue());
+        }
+    }
+
+    private record BooleanProperty(String key, MethodHandle getter, MethodHandle setter)
+            implements Property {
+        public void write(Object item, NbtCompound compound) throws Throwable {
+            compound.put(key, NbtByte.of((boolean) getter.invokeExact(item)));
+        }
+
+        public void read(Object item, NbtElement value) throws Throwable {
+            setter.invokeExact(item, ((NbtByte) value).byteValue() != 0);
+        }
+    }
+
+    private record ByteProperty(String key, MethodHandle getter, MethodHandle setter)
+            implements Property {
+        public void write(Object item, NbtCompound compound) throws Throwable {
+            compound.put(key, NbtByte.of((byte) getter.invokeExact(item)));
+        }
+
+        public void read(Object item, NbtElement value) throws Throwable {
+            setter.invokeExact(item, ((NbtByte) value).byteValue());
+        }
+    }
+
+    private record ShortProperty(String key, MethodHandle getter, MethodHandle setter)
+            implements Property {
+        public void write(Object item, NbtCompound compound) throws Throwable {
+            compound.put(key, NbtShort.of((short) getter.invokeExact(item)));
+        }
+
+        public void read(Object item, NbtElement value) throws Throwable {
+            setter.invokeExact(item, ((NbtShort) value).shortValue());
+        }
+    }
+
+    private record ObjectProperty(
+            String key,
+            MethodHandle getter,
+            MethodHandle setter,
+            Function<Object, NbtElement> serializer,
+            Function<NbtElement, Object> deserializer)
+            implements Property {
+        public void write(Object item, NbtCompound compound) throws Throwable {
+            Object data = (Object) getter.invokeExact(item);
+            if (data != null) compound.put(key, serializer.apply(data));
+        }
+
+        public void read(Object item, NbtElement value) throws Throwable {
+            setter.invokeExact(item, deserializer.apply(value));
+        }
+    }
+
+    private record ListProperty(
+            String key,
+            MethodHandle getter,
+            MethodHandle setter,
+            Function<Object, NbtElement> serializer,
+            Function<NbtElement, Object> deserializer)
+            implements Property {
+        public void write(Object item, NbtCompound compound) throws Throwable {
+            Object data = (Object) getter.invokeExact(item);
+            if (data == null) return;
+
+            NbtList list = new NbtList();
+            for (Object element : (List<?>) data) {
+                list.add(serializer.apply(element));
+            }
+            compound.put(key, list);
+        }
+
+        public void read(Object item, NbtElement value) throws Throwable {
+            NbtList list = (NbtList) value;
+            ArrayList<Object> data = new ArrayList<>(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                data.add(deserializer.apply(list.get(i)));
+            }
+            setter.invokeExact(item, (Object) data);
+        }
+    }
+}
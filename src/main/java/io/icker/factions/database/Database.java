@@ -5,207 +5,223 @@ import io.icker.factions.FactionsMod;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
-import net.minecraft.nbt.NbtIo;
-import net.minecraft.nbt.NbtList;
-import net.minecraft.nbt.NbtSizeTracker;
+
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 
 public class Database {
     private static final File BASE_PATH =
             FabricLoader.getInstance().getGameDir().resolve("factions").toFile();
-    private static final HashMap<Class<?>, HashMap<String, Field>> cache =
-            new HashMap<>();
-    private static final String KEY = "CORE";
+    private static final HashMap<Class<?>, SnapshotFormat<?>> FORMATS = new HashMap<>();
+    private static final HashSet<Class<?>> SHARDED = new HashSet<>();
+    private static final HashMap<Class<?>, List<List<String>>> INDEXES = new HashMap<>();
+    private static final HashMap<Class<?>, Function<?, String>> KEYS = new HashMap<>();
+
+    /** The names accepted by {@link #createStorage(String)}. */
+    public static final List<String> STORAGES = List.of("nbt", "h2");
+
+    private static volatile Storage storage = createConfiguredStorage();
+
+    private static Storage createConfiguredStorage() {
+        try {
+            return createStorage(FactionsMod.CONFIG.STORAGE);
+        } catch (IllegalArgumentException e) {
+            FactionsMod.LOGGER.error("Unknown storage {}, using nbt", FactionsMod.CONFIG.STORAGE);
+            return createStorage("nbt");
+        }
+    }
+
+    public static Storage createStorage(String name) {
+        return switch (name.toLowerCase()) {
+            case "nbt" -> new NbtStorage(BASE_PATH);
+            case "h2" -> new SqlStorage(BASE_PATH);
+            default -> throw new IllegalArgumentException("Unknown storage " + name);
+        };
+    }
+
+    public static Storage getStorage() {
+        return storage;
+    }
+
+    /** Switches backends; only {@link WriteBehind#migrate} does this, once the data is copied. */
+    static void setStorage(Storage storage) {
+        Storage previous = Database.storage;
+        Database.storage = storage;
+        previous.close();
+    }
+
+    /**
+     * Stores the class's NBT snapshots in its own layout; call before the store is first loaded.
+     */
+    public static synchronized <T> void registerFormat(Class<T> clazz, SnapshotFormat<T> format) {
+        FORMATS.put(clazz, format);
+    }
 
-    // Single lock to serialize all loads and saves
-    private static final Object IO_LOCK = new Object();
+    @SuppressWarnings("unchecked")
+    static synchronized <T> SnapshotFormat<T> getFormat(Class<T> clazz) {
+        return (SnapshotFormat<T>) FORMATS.get(clazz);
+    }
+
+    /**
+     * Stores the class as one NBT file per item, {@code <name>/<key>.dat}, so a changed item is
+     * saved on its own and a corrupt file only loses that item; call before the store is first
+     * loaded. An existing single-file store is split on load, and is merged back from the shards if
+     * the class is later loaded without this.
+     */
+    public static synchronized void registerSharded(Class<?> clazz) {
+        SHARDED.add(clazz);
+    }
+
+    static synchronized boolean isSharded(Class<?> clazz) {
+        return SHARDED.contains(clazz);
+    }
+
+    /**
+     * Adds an index on these {@link Field} keys, for backends that can query items by their
+     * fields. Call before the store is first loaded.
+     */
+    public static synchronized void registerIndex(Class<?> clazz, String... fields) {
+        INDEXES.computeIfAbsent(clazz, c -> new ArrayList<>()).add(List.of(fields));
+    }
+
+    static synchronized List<List<String>> getIndexes(Class<?> clazz) {
+        return INDEXES.getOrDefault(clazz, List.of());
+    }
+
+    /** The string form of an item's store key, which backends identify items by. */
+    @SuppressWarnings("unchecked")
+    static synchronized <T> Function<T, String> getKey(Class<T> clazz) {
+        return (Function<T, String>) KEYS.get(clazz);
+    }
+
+    static String name(Class<?> clazz) {
+        return clazz.getAnnotation(Name.class).value().toLowerCase();
+    }
 
     public static <T, E> HashMap<E, T> load(Class<T> clazz, Function<T, E> getStoreKey) {
-        String name = clazz.getAnnotation(Name.class).value();
-        File file = new File(BASE_PATH, name.toLowerCase() + ".dat");
-
-        if (!cache.containsKey(clazz)) setup(clazz);
-
-        HashMap<E, T> store = new HashMap<>();
-
-        synchronized (IO_LOCK) {
-            if (!file.exists()) {
-                if (!BASE_PATH.exists()) BASE_PATH.mkdir();
-                try {
-                    file.createNewFile();
-                } catch (IOException e) {
-                    FactionsMod.LOGGER.error("Failed to create file ({})", file, e);
-                }
-                return store;
-            }
-
-            try {
-                NbtCompound root = NbtIo.readCompressed(
-                        Path.of(file.getPath()),
-                        NbtSizeTracker.ofUnlimitedBytes()
-                );
-                if (!root.contains(KEY)) {
-                    return store;
-                }
-                NbtList list = (NbtList) root.get(KEY);
-                for (T item : deserializeList(clazz, list)) {
-                    store.put(getStoreKey.apply(item), item);
-                }
-            } catch (IOException | ReflectiveOperationException e) {
-                FactionsMod.LOGGER.error("Failed to read NBT data ({})", file, e);
-                // On load failure, return empty store to avoid wiping on next save
-                return store;
-            }
-        }
+        return load(clazz, getStoreKey, HashMap::newHashMap);
+    }
 
+    /** Loads the store into a map that {@code map} creates for the number of items read. */
+    public static <T, E, M extends Map<E, T>> M load(
+            Class<T> clazz, Function<T, E> getStoreKey, IntFunction<M> map) {
+        List<T> items = loadItems(clazz, getStoreKey);
+        M store = map.apply(items.size());
+        for (T item : items) {
+            store.put(getStoreKey.apply(item), item);
+        }
         return store;
     }
 
-    private static <T> T deserialize(Class<T> clazz, NbtElement value)
-            throws IOException, ReflectiveOperationException {
-        if (SerializerRegistry.contains(clazz)) {
-            return SerializerRegistry.fromNbtElement(clazz, value);
+    /**
+     * Loads every item of the store, for stores that index their items themselves. Items are
+     * identified by the string form of {@code getStoreKey}.
+     */
+    public static <T, E> List<T> loadItems(Class<T> clazz, Function<T, E> getStoreKey) {
+        CompiledSerializer.register(clazz);
+        Function<T, String> key = item -> String.valueOf(getStoreKey.apply(item));
+        synchronized (Database.class) {
+            KEYS.put(clazz, key);
         }
 
-        NbtCompound compound = (NbtCompound) value;
-        @SuppressWarnings("unchecked")
-        T item = (T) clazz.getDeclaredConstructor().newInstance();
-
-        HashMap<String, Field> fields = cache.get(clazz);
-        for (Map.Entry<String, Field> entry : fields.entrySet()) {
-            String key = entry.getKey();
-            Field field = entry.getValue();
-
-            if (!compound.contains(key)) continue;
-
-            Class<?> type = field.getType();
-            if (List.class.isAssignableFrom(type)) {
-                Class<?> genericType = (Class<?>)
-                        ((ParameterizedType) field.getGenericType())
-                                .getActualTypeArguments()[0];
-                field.set(item, deserializeList(genericType, (NbtList) compound.get(key)));
-            } else {
-                field.set(item, deserialize(type, compound.get(key)));
-            }
+        try {
+            return storage.load(clazz);
+        } catch (IOException | RuntimeException e) {
+            FactionsMod.LOGGER.error("Failed to load {} data ({})", name(clazz), storage.name(), e);
+            // On load failure, return empty store to avoid wiping on next save
+            return new ArrayList<>();
         }
-
-        return item;
     }
 
-    private static <T> ArrayList<T> deserializeList(Class<T> clazz, NbtList list)
-            throws IOException, ReflectiveOperationException {
-        ArrayList<T> out = new ArrayList<>();
-        for (int i = 0; i < list.size(); i++) {
-            out.add(deserialize(clazz, list.get(i)));
-        }
-        return out;
+    public static <T> void save(Class<T> clazz, List<T> items) {
+        NbtCompound fileData = serialize(clazz, items);
+        if (fileData != null) write(clazz, fileData);
     }
 
-    public static <T> void save(Class<T> clazz, List<T> items) {
-        String name = clazz.getAnnotation(Name.class).value();
-        File file = new File(BASE_PATH, name.toLowerCase() + ".dat");
-        File tmp  = new File(file.getPath() + ".tmp");
-
-        if (!cache.containsKey(clazz)) setup(clazz);
-
-        synchronized (IO_LOCK) {
-            try {
-                // serialize into NBT
-                NbtCompound fileData = new NbtCompound();
-                fileData.put(KEY, serializeList(clazz, items));
-
-                // write to temporary file first
-                NbtIo.writeCompressed(fileData, Path.of(tmp.getPath()));
-
-                // atomically replace original
-                Files.move(
-                        Path.of(tmp.getPath()),
-                        Path.of(file.getPath()),
-                        StandardCopyOption.REPLACE_EXISTING,
-                        StandardCopyOption.ATOMIC_MOVE
-                );
-            } catch (IOException | ReflectiveOperationException e) {
-                FactionsMod.LOGGER.error("Failed to write NBT data ({})", file, e);
-                // clean up temp file if present
-                if (tmp.exists()) {
-                    tmp.delete();
-                }
-            }
+    /**
+     * Builds a snapshot of a store. Reads the items, so it must run on the thread that owns them;
+     * the result can then be written from any thread.
+     *
+     * @return the snapshot, or null if serialization failed (already logged)
+     */
+    @Nullable
+    static <T> NbtCompound serialize(Class<T> clazz, List<T> items) {
+        CompiledSerializer.register(clazz);
+
+        try {
+            return storage.snapshot(clazz, items);
+        } catch (RuntimeException e) {
+            FactionsMod.LOGGER.error("Failed to serialize {} data", name(clazz), e);
+            return null;
         }
     }
 
-    private static <T> NbtList serializeList(Class<T> clazz, List<T> items)
-            throws IOException, ReflectiveOperationException {
-        NbtList list = new NbtList();
+    /** One entry per item, by key; the snapshot of backends that keep items apart. */
+    static <T> NbtCompound serializeKeyed(Class<T> clazz, List<T> items) {
+        Function<T, String> key = getKey(clazz);
+        NbtCompound fileData = new NbtCompound();
         for (T item : items) {
-            list.add(serialize(clazz, item));
+            fileData.put(key.apply(item), toCompound(clazz, item));
         }
-        return list;
+        return fileData;
     }
 
-    private static <T> NbtElement serialize(Class<T> clazz, T item)
-            throws IOException, ReflectiveOperationException {
-        if (SerializerRegistry.contains(clazz)) {
-            return SerializerRegistry.toNbtElement(clazz, item);
+    /**
+     * Serializes a single item for {@link #apply}, on the thread that owns it.
+     *
+     * @return the item's data, or null if serialization failed (already logged)
+     */
+    @Nullable
+    static <T> NbtCompound serializeItem(Class<T> clazz, T item) {
+        CompiledSerializer.register(clazz);
+
+        try {
+            return toCompound(clazz, item);
+        } catch (RuntimeException e) {
+            FactionsMod.LOGGER.error("Failed to serialize {} data", name(clazz), e);
+            return null;
         }
+    }
 
-        HashMap<String, Field> fields = cache.get(clazz);
-        NbtCompound compound = new NbtCompound();
-        for (Map.Entry<String, Field> entry : fields.entrySet()) {
-            String key = entry.getKey();
-            Field field = entry.getValue();
-            Object data = field.get(item);
-            if (data == null) continue;
-
-            Class<?> type = field.getType();
-            if (List.class.isAssignableFrom(type)) {
-                Class<?> genericType = (Class<?>)
-                        ((ParameterizedType) field.getGenericType())
-                                .getActualTypeArguments()[0];
-                compound.put(key, serializeList(genericType, cast(data)));
-            } else {
-                compound.put(key, serialize(type, cast(data)));
-            }
+    /**
+     * Writes a previously built snapshot, replacing the whole store.
+     *
+     * @return whether the write succeeded
+     */
+    static boolean write(Class<?> clazz, NbtCompound snapshot) {
+        try {
+            storage.write(clazz, snapshot);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            FactionsMod.LOGGER.error("Failed to write {} data ({})", name(clazz), storage.name(), e);
+            return false;
         }
-        return compound;
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T> T cast(Object obj) {
-        return (T) obj;
-    }
-
-    private static <T> void setup(Class<T> clazz) {
-        HashMap<String, Field> fields = new HashMap<>();
-        for (Field field : clazz.getDeclaredFields()) {
-            if (field.isAnnotationPresent(io.icker.factions.database.Field.class)) {
-                field.setAccessible(true);
-                String key = field.getAnnotation(io.icker.factions.database.Field.class).value();
-                fields.put(key, field);
-
-                Class<?> type = field.getType();
-                if (!SerializerRegistry.contains(type)) {
-                    if (List.class.isAssignableFrom(type)) {
-                        ParameterizedType gen = (ParameterizedType) field.getGenericType();
-                        setup((Class<?>) gen.getActualTypeArguments()[0]);
-                    } else {
-                        setup(type);
-                    }
-                }
-            }
-        }
-        cache.put(clazz, fields);
+    /** Writes changes to single items, see {@link Storage#apply}. */
+    static void apply(Class<?> clazz, List<String> removed, Map<String, NbtCompound> changed)
+            throws IOException {
+        storage.apply(clazz, removed, changed);
+    }
+
+    static boolean isDue(Class<?> clazz, long now) {
+        return storage.isDue(clazz, now);
+    }
+
+    static <T> NbtCompound toCompound(Class<T> clazz, T item) {
+        return (NbtCompound) SerializerRegistry.toNbtElement(clazz, item);
+    }
+
+    static <T> T deserialize(Class<T> clazz, NbtElement value) {
+        return SerializerRegistry.fromNbtElement(clazz, value);
     }
 }
@@ -0,0 +1,182 @@
+package io.icker.factions.database;
+
+import io.icker.factions.FactionsMod;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtSizeTracker;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of changes to one store, kept next to its snapshot as {@code <name>.journal}.
+ * Each record replaces or removes a single item by key, so persisting a change costs the same
+ * however large the store is. Loading replays the records over the snapshot, and once the journal
+ * passes {@link #MAX_BYTES} or {@link #MAX_AGE_MILLIS} the store is compacted into a fresh
+ * snapshot and the journal starts over.
+ *
+ * <p>Records carry their length and a CRC, so one torn by a crash is dropped on replay. {@link
+ * WriteBehind} journals every change before it snapshots the store, and the changes made since
+ * after it, so the last record for a key in the journal is never older than that key in the
+ * snapshot. Replaying the journal over a newer snapshot therefore ends in the same state, which
+ * makes a crash between writing a snapshot and clearing the journal harmless. This holds as long
+ * as appends succeed; changes whose append failed are only covered by the next snapshot.
+ */
+final class Journal {
+    static final long MAX_BYTES = 1 << 20;
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final byte PUT = 0;
+    private static final byte REMOVE = 1;
+    // length + CRC
+    private static final int HEADER = 8;
+
+    private final Path path;
+    private FileOutputStream out;
+    private volatile long bytes;
+    // when the oldest record still in the journal was written, 0 if it is empty
+    private volatile long oldest;
+
+    Journal(Path path) {
+        this.path = path;
+        try {
+            bytes = Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            bytes = 0;
+        }
+        oldest = bytes > 0 ? System.currentTimeMillis() : 0;
+    }
+
+    @FunctionalInterface
+    interface Replay {
+        /** @param value the item's new state, or null if it was removed */
+        void apply(String key, @Nullable NbtCompound value);
+    }
+
+    static byte[] put(String key, NbtCompound value) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeByte(PUT);
+        data.writeUTF(key);
+        value.write(data);
+        return frame(payload.toByteArray());
+    }
+
+    static byte[] remove(String key) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeByte(REMOVE);
+        data.writeUTF(key);
+        return frame(payload.toByteArray());
+    }
+
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(HEADER + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+    }
+
+    /**
+     * Applies every intact record in order. A torn record at the end is logged and cut off so
+     * later appends are not hidden behind it.
+     */
+    static void replay(Path path, Replay replay) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int valid = 0;
+
+        while (buffer.remaining() >= HEADER) {
+            int length = buffer.getInt();
+            int expected = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) break;
+
+            CRC32 crc = new CRC32();
+            crc.update(data, buffer.position(), length);
+            if ((int) crc.getValue() != expected) break;
+
+            DataInputStream in =
+                    new DataInputStream(new ByteArrayInputStream(data, buffer.position(), length));
+            byte op = in.readByte();
+            String key = in.readUTF();
+            replay.apply(
+                    key,
+                    op == PUT ? NbtCompound.TYPE.read(in, NbtSizeTracker.ofUnlimitedBytes()) : null);
+
+            buffer.position(buffer.position() + length);
+            valid = buffer.position();
+        }
+
+        if (valid < data.length) {
+            FactionsMod.LOGGER.warn(
+                    "Dropped {} bytes of incomplete journal records ({})", data.length - valid, path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+    }
+
+    /** Appends the records and forces them to disk together. Writer thread only. */
+    void append(List<byte[]> records) throws IOException {
+        if (out == null) {
+            out = new FileOutputStream(path.toFile(), true);
+        }
+        long written = 0;
+        for (byte[] record : records) {
+            out.write(record);
+            written += record.length;
+        }
+        out.getChannel().force(false);
+
+        if (oldest == 0) oldest = System.currentTimeMillis();
+        bytes += written;
+    }
+
+    /** Starts an empty journal, once a snapshot containing every record has been written. */
+    void reset() {
+        try {
+            if (out != null) out.close();
+            out = new FileOutputStream(path.toFile(), false);
+            bytes = 0;
+            oldest = 0;
+        } catch (IOException e) {
+            // harmless: the old records, and those appended after them, are replayed over the
+            // newer snapshot to the same state
+            out = null;
+            FactionsMod.LOGGER.error("Failed to clear journal ({})", path, e);
+        }
+    }
+
+    /** Closes the file, once the store's writes are done; the next append opens it again. */
+    void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            FactionsMod.LOGGER.error("Failed to close journal ({})", path, e);
+        }
+        out = null;
+    }
+
+    /** Whether the store should be compacted into a fresh snapshot. */
+    boolean isDue(long now) {
+        return bytes >= MAX_BYTES || (oldest != 0 && now - oldest >= MAX_AGE_MILLIS);
+    }
+}
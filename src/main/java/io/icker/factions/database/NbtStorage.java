@@ -0,0 +1,399 @@
+package io.icker.factions.database;
+
+import io.icker.factions.FactionsMod;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtInt;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtSizeTracker;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * The default backend: one compressed NBT file per store, {@code <name>.dat}, in the store's
+ * {@link SnapshotFormat} if it has one, with changes to single items appended to a {@link Journal}
+ * beside it. A store registered with {@link Database#registerSharded} is kept as one file per item
+ * instead, {@code <name>/<key>.dat}.
+ */
+final class NbtStorage implements Storage {
+    private static final String KEY = "CORE";
+    private static final String VERSION_KEY = "Version";
+
+    private final File basePath;
+    private final HashMap<Class<?>, Journal> journals = new HashMap<>();
+
+    // One lock per store, so loading or saving one store never waits for another
+    private final ConcurrentHashMap<Class<?>, Object> locks = new ConcurrentHashMap<>();
+
+    NbtStorage(File basePath) {
+        this.basePath = basePath;
+    }
+
+    @Override
+    public String name() {
+        return "nbt";
+    }
+
+    @Override
+    public <T> List<T> load(Class<T> clazz) {
+        File file = file(clazz);
+        Path shards = shardPath(clazz);
+        boolean sharded = Database.isSharded(clazz);
+        Function<T, String> key = Database.getKey(clazz);
+
+        LinkedHashMap<String, T> store = new LinkedHashMap<>();
+
+        synchronized (lock(clazz)) {
+            if (Files.isDirectory(shards) && (sharded || !file.exists())) {
+                try {
+                    for (T item : readShards(clazz, shards)) {
+                        store.put(key.apply(item), item);
+                    }
+                    if (!sharded) merge(clazz, shards, store.values());
+                } catch (IOException e) {
+                    FactionsMod.LOGGER.error("Failed to read NBT data ({})", shards, e);
+                }
+                return new ArrayList<>(store.values());
+            }
+
+            if (!file.exists()) {
+                if (!basePath.exists()) basePath.mkdir();
+                // a new sharded store starts out as its directory instead
+                if (!sharded) {
+                    try {
+                        file.createNewFile();
+                    } catch (IOException e) {
+                        FactionsMod.LOGGER.error("Failed to create file ({})", file, e);
+                    }
+                }
+            } else if (file.length() > 0) {
+                // a file that was created but never saved holds no snapshot, only the journal
+                try {
+                    NbtCompound root = NbtIo.readCompressed(
+                            Path.of(file.getPath()),
+                            NbtSizeTracker.ofUnlimitedBytes()
+                    );
+                    SnapshotFormat<T> format = Database.getFormat(clazz);
+                    if (root.contains(KEY)) {
+                        NbtList list = (NbtList) root.get(KEY);
+                        for (int i = 0; i < list.size(); i++) {
+                            T item = Database.deserialize(clazz, list.get(i));
+                            store.put(key.apply(item), item);
+                        }
+                        if (format != null) migrate(clazz, file, store.values());
+                    } else if (format != null && root.contains(VERSION_KEY)) {
+                        int version = ((NbtInt) root.get(VERSION_KEY)).intValue();
+                        if (version > format.version()) {
+                            throw new IOException("Unsupported format version " + version);
+                        }
+                        for (T item : format.read(root, version)) {
+                            store.put(key.apply(item), item);
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    FactionsMod.LOGGER.error("Failed to read NBT data ({})", file, e);
+                    // On load failure, return empty store to avoid wiping on next save
+                    return new ArrayList<>();
+                }
+            }
+
+            Path journal = journalPath(clazz);
+            if (Files.exists(journal)) {
+                replay(clazz, key, store, journal);
+            }
+
+            if (sharded) {
+                split(clazz, file, store.values());
+            } else {
+                // picks up the size of what was replayed, so a long journal is compacted soon
+                journal(clazz);
+            }
+        }
+
+        return new ArrayList<>(store.values());
+    }
+
+    // Rewrites a default-layout snapshot in the registered format, keeping the original beside it
+    private <T> void migrate(Class<T> clazz, File file, Collection<T> items) {
+        try {
+            Files.copy(
+                    file.toPath(),
+                    file.toPath().resolveSibling(file.getName() + ".legacy"),
+                    StandardCopyOption.REPLACE_EXISTING);
+
+            writeFile(file.toPath(), snapshot(clazz, new ArrayList<>(items)));
+            FactionsMod.LOGGER.info(
+                    "Migrated {} ({} entries) to format version {}",
+                    file.getName(),
+                    items.size(),
+                    Database.getFormat(clazz).version());
+        } catch (IOException | RuntimeException e) {
+            // the old layout is still readable, so this is tried again on the next load
+            FactionsMod.LOGGER.error("Failed to migrate NBT data ({})", file, e);
+        }
+    }
+
+    // Journal records are keyed by the string form of the store key
+    private <T> void replay(
+            Class<T> clazz, Function<T, String> key, Map<String, T> store, Path journal) {
+        try {
+            Journal.replay(
+                    journal,
+                    (itemKey, value) -> {
+                        store.remove(itemKey);
+                        if (value == null) return;
+
+                        T item = Database.deserialize(clazz, value);
+                        store.put(key.apply(item), item);
+                    });
+        } catch (IOException | RuntimeException e) {
+            FactionsMod.LOGGER.error("Failed to replay journal ({})", journal, e);
+        }
+    }
+
+    // Shards are read in parallel; one that cannot be read is set aside and the rest still load
+    private <T> List<T> readShards(Class<T> clazz, Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(path -> path.toString().endsWith(".dat")).toList();
+        }
+
+        return files.parallelStream()
+                .map(path -> readShard(clazz, path))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Nullable
+    private <T> T readShard(Class<T> clazz, Path path) {
+        try {
+            return Database.deserialize(
+                    clazz, NbtIo.readCompressed(path, NbtSizeTracker.ofUnlimitedBytes()));
+        } catch (IOException | RuntimeException e) {
+            FactionsMod.LOGGER.error("Failed to read NBT data ({}), skipping it", path, e);
+            try {
+                Files.move(
+                        path,
+                        path.resolveSibling(path.getFileName() + ".corrupt"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    // Writes every item to a new shard directory, then keeps the single file beside it
+    private <T> void split(Class<T> clazz, File file, Collection<T> items) {
+        Path shards = shardPath(clazz);
+        Path tmp = shards.resolveSibling(shards.getFileName() + ".tmp");
+        Function<T, String> key = Database.getKey(clazz);
+
+        try {
+            Files.createDirectories(tmp);
+            for (T item : items) {
+                NbtIo.writeCompressed(
+                        Database.toCompound(clazz, item), tmp.resolve(key.apply(item) + ".dat"));
+            }
+            Files.move(tmp, shards, StandardCopyOption.ATOMIC_MOVE);
+
+            // the file must not be left in place, or loading without shards would read it
+            if (file.length() > 0) {
+                Files.move(
+                        file.toPath(),
+                        file.toPath().resolveSibling(file.getName() + ".legacy"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(file.toPath());
+            }
+            Files.deleteIfExists(journalPath(clazz));
+            FactionsMod.LOGGER.info("Split {} into {} shards", file.getName(), items.size());
+        } catch (IOException | RuntimeException e) {
+            // the single file is still complete, so the split is tried again on the next load
+            FactionsMod.LOGGER.error("Failed to split NBT data ({})", file, e);
+        }
+    }
+
+    // Writes the shards back into a single file, then keeps the shard directory beside it
+    private <T> void merge(Class<T> clazz, Path shards, Collection<T> items) throws IOException {
+        writeFile(file(clazz).toPath(), snapshot(clazz, new ArrayList<>(items)));
+
+        Path legacy = shards.resolveSibling(shards.getFileName() + ".legacy");
+        if (Files.isDirectory(legacy)) {
+            throw new IOException("Cannot move shards aside, " + legacy + " already exists");
+        }
+        Files.move(shards, legacy, StandardCopyOption.ATOMIC_MOVE);
+        FactionsMod.LOGGER.info("Merged {} shards into a single file", items.size());
+    }
+
+    private File file(Class<?> clazz) {
+        return new File(basePath, Database.name(clazz) + ".dat");
+    }
+
+    private Path shardPath(Class<?> clazz) {
+        return basePath.toPath().resolve(Database.name(clazz));
+    }
+
+    private Path journalPath(Class<?> clazz) {
+        return basePath.toPath().resolve(Database.name(clazz) + ".journal");
+    }
+
+    private Object lock(Class<?> clazz) {
+        return locks.computeIfAbsent(clazz, c -> new Object());
+    }
+
+    private Journal journal(Class<?> clazz) {
+        synchronized (journals) {
+            return journals.computeIfAbsent(clazz, c -> new Journal(journalPath(c)));
+        }
+    }
+
+    /** Closes the journals; they are opened again from their files if this backend is reused. */
+    @Override
+    public void close() {
+        synchronized (journals) {
+            journals.values().forEach(Journal::close);
+            journals.clear();
+        }
+    }
+
+    /** For a sharded store, one entry per shard by key; otherwise the contents of the file. */
+    @Override
+    public <T> NbtCompound snapshot(Class<T> clazz, List<T> items) {
+        if (Database.isSharded(clazz)) {
+            return Database.serializeKeyed(clazz, items);
+        }
+
+        SnapshotFormat<T> format = Database.getFormat(clazz);
+        if (format != null) {
+            NbtCompound fileData = format.write(items);
+            fileData.put(VERSION_KEY, NbtInt.of(format.version()));
+            return fileData;
+        }
+
+        NbtList list = new NbtList();
+        for (T item : items) {
+            list.add(Database.toCompound(clazz, item));
+        }
+        NbtCompound fileData = new NbtCompound();
+        fileData.put(KEY, list);
+        return fileData;
+    }
+
+    /**
+     * Replaces the file atomically and starts an empty journal. For a sharded store every shard is
+     * rewritten and shards of items that no longer exist are deleted.
+     */
+    @Override
+    public void write(Class<?> clazz, NbtCompound snapshot) throws IOException {
+        if (Database.isSharded(clazz)) {
+            writeShards(clazz, snapshot);
+            return;
+        }
+
+        synchronized (lock(clazz)) {
+            // a migration can be the first write to this directory
+            Files.createDirectories(basePath.toPath());
+            writeFile(file(clazz).toPath(), snapshot);
+        }
+        journal(clazz).reset();
+    }
+
+    private void writeShards(Class<?> clazz, NbtCompound snapshot) throws IOException {
+        Path shards = shardPath(clazz);
+
+        synchronized (lock(clazz)) {
+            Files.createDirectories(shards);
+            for (String key : snapshot.getKeys()) {
+                writeFile(shards.resolve(key + ".dat"), (NbtCompound) snapshot.get(key));
+            }
+
+            List<Path> stale;
+            try (Stream<Path> list = Files.list(shards)) {
+                stale = list.filter(path -> {
+                            String file = path.getFileName().toString();
+                            return file.endsWith(".dat")
+                                    && !snapshot.contains(file.substring(0, file.length() - 4));
+                        })
+                        .toList();
+            }
+            for (Path path : stale) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /** Appends the changes to the journal, or rewrites just the affected shards. */
+    @Override
+    public void apply(Class<?> clazz, List<String> removed, Map<String, NbtCompound> changed)
+            throws IOException {
+        if (!Database.isSharded(clazz)) {
+            List<byte[]> records = new ArrayList<>(removed.size() + changed.size());
+            for (String key : removed) {
+                records.add(Journal.remove(key));
+            }
+            for (Map.Entry<String, NbtCompound> entry : changed.entrySet()) {
+                records.add(Journal.put(entry.getKey(), entry.getValue()));
+            }
+            journal(clazz).append(records);
+            return;
+        }
+
+        Path shards = shardPath(clazz);
+        synchronized (lock(clazz)) {
+            Files.createDirectories(shards);
+            for (String key : removed) {
+                Files.deleteIfExists(shards.resolve(key + ".dat"));
+            }
+            for (Map.Entry<String, NbtCompound> entry : changed.entrySet()) {
+                writeFile(shards.resolve(entry.getKey() + ".dat"), entry.getValue());
+            }
+        }
+    }
+
+    /** Whether the store's journal has grown or aged enough to be compacted into a snapshot. */
+    @Override
+    public boolean isDue(Class<?> clazz, long now) {
+        Journal journal;
+        synchronized (journals) {
+            journal = journals.get(clazz);
+        }
+        return journal != null && journal.isDue(now);
+    }
+
+    private static void writeFile(Path file, NbtCompound data) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            // write to temporary file first
+            NbtIo.writeCompressed(data, tmp);
+
+            // atomically replace original
+            Files.move(
+                    tmp,
+                    file,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE
+            );
+        } catch (IOException e) {
+            // clean up temp file if present
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import io.icker.factions.api.persistents.Relationship.Status;
 import io.icker.factions.api.persistents.User.ChatMode;
 import io.icker.factions.api.persistents.User.Rank;
 import io.icker.factions.api.persistents.User.SoundMode;
+import io.icker.factions.util.LazyInventory;
 import io.icker.factions.util.WorldUtils;
 
 import net.minecraft.inventory.SimpleInventory;
@@ -37,13 +38,14 @@ import net.minecraft.util.dynamic.Codecs;
 
 import org.apache.commons.lang3.ArrayUtils;
 
-import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public class SerializerRegistry {
-    private static final HashMap<Class<?>, Serializer<?, ? extends NbtElement>> registry =
-            new HashMap<Class<?>, Serializer<?, ? extends NbtElement>>();
+    // stores are decoded on several threads while their classes are still being registered
+    private static final ConcurrentHashMap<Class<?>, Serializer<?, ? extends NbtElement>> registry =
+            new ConcurrentHashMap<Class<?>, Serializer<?, ? extends NbtElement>>();
 
     private static class Serializer<T, E extends NbtElement> {
         private final Function<T, E> serializer;
@@ -116,6 +118,11 @@ public class SerializerRegistry {
                         val -> new NbtIntArray(Uuids.toIntArray(val)),
                         el -> Uuids.toUuid(el.getIntArray())));
         registry.put(SimpleInventory.class, createInventorySerializer(54));
+        // left as NBT until opened, see LazyInventory
+        registry.put(
+                LazyInventory.class,
+                new Serializer<LazyInventory, NbtList>(
+                        val -> val.toNbt(), el -> new LazyInventory(54, el)));
 
         registry.put(ChatMode.class, createEnumSerializer(ChatMode.class));
         registry.put(SoundMode.class, createEnumSerializer(SoundMode.class));
@@ -128,6 +135,21 @@ public class SerializerRegistry {
         return registry.containsKey(clazz);
     }
 
+    /** Adds the serializer for a {@link Field}-annotated class, see {@link CompiledSerializer}. */
+    static <T> void register(
+            Class<T> clazz, Function<T, NbtCompound> serializer, Function<NbtCompound, T> deserializer) {
+        registry.put(clazz, new Serializer<T, NbtCompound>(serializer, deserializer));
+    }
+
+    // Resolved once by CompiledSerializer so the per-object path skips the lookup
+    static Function<Object, NbtElement> serializer(Class<?> clazz) {
+        return registry.get(clazz)::serialize;
+    }
+
+    static Function<NbtElement, Object> deserializer(Class<?> clazz) {
+        return registry.get(clazz)::deserialize;
+    }
+
     public static <T> NbtElement toNbtElement(Class<T> clazz, T value) {
         return registry.get(clazz).serialize(value);
     }
@@ -167,8 +189,7 @@ public class SerializerRegistry {
                     NbtWriteView view =
                             NbtWriteView.create(
                                     reporter,
-                                    WorldUtils.getWorld("minecraft:overworld")
-                                            .getRegistryManager());
+                                    WorldUtils.server.getRegistryManager());
                     ListAppender<InventoryItem> appender =
                             view.getListAppender("Data", InventoryItem.CODEC);
 
@@ -192,7 +213,7 @@ public class SerializerRegistry {
                     ReadView view =
                             NbtReadView.create(
                                     reporter,
-                                    WorldUtils.getWorld("minecraft:overworld").getRegistryManager(),
+                                    WorldUtils.server.getRegistryManager(),
                                     compound);
 
                     SimpleInventory inventory = new SimpleInventory(size);
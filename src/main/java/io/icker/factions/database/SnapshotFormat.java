@@ -0,0 +1,21 @@
+package io.icker.factions.database;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A store-specific snapshot layout, used in place of the default list of one compound per item. See
+ * {@link Database#registerFormat(Class, SnapshotFormat)}. Snapshots in the default layout are still
+ * read, and are rewritten in this format as soon as they are loaded.
+ */
+public interface SnapshotFormat<T> {
+    /** Stored with every snapshot; {@link #read} is given the version the snapshot was written in. */
+    int version();
+
+    /** Builds the snapshot. Runs on the thread that owns the items. */
+    NbtCompound write(List<T> items);
+
+    List<T> read(NbtCompound root, int version) throws IOException;
+}
@@ -0,0 +1,295 @@
+package io.icker.factions.database;
+
+import io.icker.factions.FactionsMod;
+
+import net.minecraft.nbt.NbtByte;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtInt;
+import net.minecraft.nbt.NbtLong;
+import net.minecraft.nbt.NbtSizeTracker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the stores in an embedded H2 database, {@code factions.mv.db}, with one table per store
+ * and one row per item, so every change is a single-row upsert or delete in one transaction per
+ * batch. Each row holds the item's key and its uncompressed NBT, plus a column for every field
+ * named in {@link Database#registerIndex}, indexed, so the data can be queried with any SQL client
+ * while the server is stopped. The stores share one connection, so their writes take turns.
+ */
+final class SqlStorage implements Storage {
+    private static final String KEY = "\"Key\"";
+    private static final String DATA = "\"Data\"";
+
+    private final File basePath;
+    private final HashMap<Class<?>, Table> tables = new HashMap<>();
+    private Connection connection;
+
+    private record Column(String field, Class<?> type) {
+        String name() {
+            return "\"" + field + "\"";
+        }
+
+        String sqlType() {
+            if (type == int.class) return "INTEGER";
+            if (type == long.class) return "BIGINT";
+            if (type == boolean.class) return "BOOLEAN";
+            return "VARCHAR";
+        }
+
+        // Read from the serialized item, since the item itself belongs to the server thread
+        Object value(NbtCompound data) {
+            NbtElement element = data.get(field);
+            if (element == null) return null;
+            if (type == int.class) return ((NbtInt) element).intValue();
+            if (type == long.class) return ((NbtLong) element).longValue();
+            if (type == boolean.class) return ((NbtByte) element).byteValue() != 0;
+            return String.valueOf(SerializerRegistry.fromNbtElement(type, element));
+        }
+    }
+
+    private record Table(String name, List<Column> columns) {}
+
+    SqlStorage(File basePath) {
+        this.basePath = basePath;
+    }
+
+    @Override
+    public String name() {
+        return "h2";
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            if (!basePath.exists()) basePath.mkdir();
+            String url = "jdbc:h2:file:" + new File(basePath, "factions").getAbsolutePath();
+            // DriverManager only sees drivers on the system class loader, not the mod's
+            connection = new org.h2.Driver().connect(url, new Properties());
+            connection.setAutoCommit(false);
+            tables.clear();
+        }
+        return connection;
+    }
+
+    // Creates the table, its columns and indexes on first use of each connection
+    private Table table(Class<?> clazz) throws SQLException {
+        Table table = tables.get(clazz);
+        if (table != null) return table;
+
+        LinkedHashMap<String, Column> columns = new LinkedHashMap<>();
+        List<List<String>> indexes = Database.getIndexes(clazz);
+        for (List<String> index : indexes) {
+            for (String field : index) {
+                columns.computeIfAbsent(field, f -> new Column(f, fieldType(clazz, f)));
+            }
+        }
+
+        String name = "\"" + Database.name(clazz) + "\"";
+        try (Statement statement = connection().createStatement()) {
+            statement.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS "
+                            + name
+                            + " ("
+                            + KEY
+                            + " VARCHAR PRIMARY KEY, "
+                            + DATA
+                            + " BLOB NOT NULL)");
+            for (Column column : columns.values()) {
+                statement.executeUpdate(
+                        "ALTER TABLE "
+                                + name
+                                + " ADD COLUMN IF NOT EXISTS "
+                                + column.name()
+                                + " "
+                                + column.sqlType());
+            }
+            for (List<String> index : indexes) {
+                statement.executeUpdate(
+                        "CREATE INDEX IF NOT EXISTS \""
+                                + Database.name(clazz)
+                                + "_"
+                                + String.join("_", index)
+                                + "\" ON "
+                                + name
+                                + " ("
+                                + index.stream().map(f -> columns.get(f).name())
+                                        .collect(Collectors.joining(", "))
+                                + ")");
+            }
+        }
+        connection().commit();
+
+        table = new Table(name, List.copyOf(columns.values()));
+        tables.put(clazz, table);
+        return table;
+    }
+
+    private static Class<?> fieldType(Class<?> clazz, String key) {
+        for (java.lang.reflect.Field field : clazz.getDeclaredFields()) {
+            Field annotation = field.getAnnotation(Field.class);
+            if (annotation != null && annotation.value().equals(key)) return field.getType();
+        }
+        throw new IllegalArgumentException("No field " + key + " in " + clazz.getName());
+    }
+
+    @Override
+    public synchronized <T> List<T> load(Class<T> clazz) throws IOException {
+        try {
+            Table table = table(clazz);
+            List<T> items = new ArrayList<>();
+            try (Statement statement = connection().createStatement();
+                    ResultSet rows =
+                            statement.executeQuery(
+                                    "SELECT " + KEY + ", " + DATA + " FROM " + table.name())) {
+                while (rows.next()) {
+                    try {
+                        items.add(Database.deserialize(clazz, decode(rows.getBytes(2))));
+                    } catch (IOException | RuntimeException e) {
+                        FactionsMod.LOGGER.error(
+                                "Failed to read {} {}, skipping it",
+                                Database.name(clazz),
+                                rows.getString(1),
+                                e);
+                    }
+                }
+            }
+            connection().commit();
+            return items;
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public <T> NbtCompound snapshot(Class<T> clazz, List<T> items) {
+        return Database.serializeKeyed(clazz, items);
+    }
+
+    @Override
+    public synchronized void write(Class<?> clazz, NbtCompound snapshot) throws IOException {
+        LinkedHashMap<String, NbtCompound> items = new LinkedHashMap<>();
+        for (String key : snapshot.getKeys()) {
+            items.put(key, (NbtCompound) snapshot.get(key));
+        }
+
+        try {
+            Table table = table(clazz);
+            try (Statement statement = connection().createStatement()) {
+                statement.executeUpdate("DELETE FROM " + table.name());
+            }
+            merge(table, items);
+            connection().commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void apply(
+            Class<?> clazz, List<String> removed, Map<String, NbtCompound> changed)
+            throws IOException {
+        try {
+            Table table = table(clazz);
+            if (!removed.isEmpty()) {
+                try (PreparedStatement delete =
+                        connection()
+                                .prepareStatement(
+                                        "DELETE FROM " + table.name() + " WHERE " + KEY + " = ?")) {
+                    for (String key : removed) {
+                        delete.setString(1, key);
+                        delete.addBatch();
+                    }
+                    delete.executeBatch();
+                }
+            }
+            merge(table, changed);
+            connection().commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException(e);
+        }
+    }
+
+    private void merge(Table table, Map<String, NbtCompound> items)
+            throws SQLException, IOException {
+        if (items.isEmpty()) return;
+
+        StringBuilder columns = new StringBuilder(KEY + ", " + DATA);
+        table.columns().forEach(column -> columns.append(", ").append(column.name()));
+        String parameters = String.join(", ", Collections.nCopies(table.columns().size() + 2, "?"));
+
+        try (PreparedStatement merge =
+                connection()
+                        .prepareStatement(
+                                "MERGE INTO "
+                                        + table.name()
+                                        + " ("
+                                        + columns
+                                        + ") KEY ("
+                                        + KEY
+                                        + ") VALUES ("
+                                        + parameters
+                                        + ")")) {
+            for (Map.Entry<String, NbtCompound> entry : items.entrySet()) {
+                merge.setString(1, entry.getKey());
+                merge.setBytes(2, encode(entry.getValue()));
+                for (int i = 0; i < table.columns().size(); i++) {
+                    merge.setObject(i + 3, table.columns().get(i).value(entry.getValue()));
+                }
+                merge.addBatch();
+            }
+            merge.executeBatch();
+        }
+    }
+
+    private void rollback() {
+        try {
+            if (connection != null) connection.rollback();
+        } catch (SQLException e) {
+            FactionsMod.LOGGER.error("Failed to roll back factions database", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            FactionsMod.LOGGER.error("Failed to close factions database", e);
+        }
+        connection = null;
+    }
+
+    private static byte[] encode(NbtCompound data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        data.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static NbtCompound decode(byte[] data) throws IOException {
+        return NbtCompound.TYPE.read(
+                new DataInputStream(new ByteArrayInputStream(data)),
+                NbtSizeTracker.ofUnlimitedBytes());
+    }
+}
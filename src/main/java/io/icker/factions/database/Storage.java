@@ -0,0 +1,40 @@
+package io.icker.factions.database;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the stores are kept; {@link Database} hands every load and write to the backend selected
+ * by the {@code storage} config option. Items are identified by the string form of their store key
+ * and passed around as the compounds {@link SerializerRegistry} produces. Only {@link #snapshot} is
+ * called on the server thread. Each store is written from its own writer thread, so writes to one
+ * store arrive in order but different stores can be written at the same time.
+ */
+public interface Storage {
+    /** The config name of the backend. */
+    String name();
+
+    /** Reads every item of the store; a store that was never written is empty. */
+    <T> List<T> load(Class<T> clazz) throws IOException;
+
+    /** Serializes the whole store for {@link #write}. Runs on the thread that owns the items. */
+    <T> NbtCompound snapshot(Class<T> clazz, List<T> items);
+
+    /** Replaces the whole store with a {@link #snapshot}. */
+    void write(Class<?> clazz, NbtCompound snapshot) throws IOException;
+
+    /** Deletes the removed items, then inserts or replaces the changed ones, by key. */
+    void apply(Class<?> clazz, List<String> removed, Map<String, NbtCompound> changed)
+            throws IOException;
+
+    /** Whether the store should be rewritten from a snapshot, to keep loading it cheap. */
+    default boolean isDue(Class<?> clazz, long now) {
+        return false;
+    }
+
+    /** Releases the backend's resources; it is reopened if used again. */
+    default void close() {}
+}
@@ -0,0 +1,359 @@
+package io.icker.factions.database;
+
+import io.icker.factions.FactionsMod;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.nbt.NbtCompound;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind persistence for the stores. Changes call {@link #markDirty(Class)} instead of
+ * saving, and at most once per {@code saveIntervalSeconds} each dirty store is snapshotted on the
+ * server thread and written by a background thread. {@link #flush(Class)} still writes
+ * synchronously when anything changed, which is what world saves and shutdown use, so nothing is
+ * lost that the old save-on-every-change approach would have kept; untouched stores are skipped.
+ *
+ * <p>Each store has its own writer thread, so a slow write of one store never holds up another and
+ * independent stores are compressed and written in parallel. A store's writes go through its
+ * writer in the order they were handed over, so a snapshot always lands after the changes it
+ * supersedes and an older write never overwrites a newer one; synchronous flushes wait for their
+ * turn. The server thread only holds the live items while copying them into a snapshot.
+ *
+ * <p>Stores registered with a key function track single items: {@link #put} marks an item as
+ * changed and {@link #remove} records its removal. Each tick the changed items are serialized once,
+ * however often they changed, and handed to the {@link Storage} backend together, which appends
+ * them to a journal, rewrites their shard files or upserts their rows. The full snapshot is only
+ * rewritten when the backend asks for it, such as a journal due for compaction.
+ */
+public final class WriteBehind {
+    private static final LinkedHashMap<Class<?>, Store<?>> STORES = new LinkedHashMap<>();
+
+    private WriteBehind() {}
+
+    // Changes to single items, serialized on the server thread and written on the writer thread
+    private record Changes(List<String> removed, Map<String, NbtCompound> changed) {}
+
+    private static class Store<T> {
+        final Class<T> clazz;
+        final Supplier<List<T>> snapshot;
+        final Function<T, String> key;
+        // Kept for the next server in this process (singleplayer), like the store itself
+        final ExecutorService writer;
+        // Changes not yet handed to the writer, guarded by the queue: removed keys, then the items
+        // changed since, by key. Removals are applied first, so a key in both ends up changed.
+        private final Object queue = new Object();
+        private List<String> removed = new ArrayList<>();
+        private LinkedHashMap<String, T> changed = new LinkedHashMap<>();
+        volatile boolean dirty;
+        long lastWrite;
+
+        Store(Class<T> clazz, Supplier<List<T>> snapshot, Function<T, String> key) {
+            this.clazz = clazz;
+            this.snapshot = snapshot;
+            this.key = key;
+            this.writer =
+                    Executors.newSingleThreadExecutor(
+                            runnable -> {
+                                Thread thread =
+                                        new Thread(
+                                                runnable,
+                                                "Factions Writer (" + Database.name(clazz) + ")");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+        }
+
+        boolean tracked() {
+            return key != null;
+        }
+
+        // Server thread: serialize now so the write sees a consistent state. Queued changes are
+        // kept: the journal must see every change in order, or a record older than the snapshot
+        // could be replayed over it, so the caller submits them first and any made since follow
+        // the snapshot.
+        NbtCompound take() {
+            dirty = false;
+            lastWrite = System.currentTimeMillis();
+            return Database.serialize(clazz, snapshot.get());
+        }
+
+        // Server thread: drops the queued changes, for a snapshot into another backend
+        void clear() {
+            dirty = false;
+            lastWrite = System.currentTimeMillis();
+            synchronized (queue) {
+                removed = new ArrayList<>();
+                changed = new LinkedHashMap<>();
+            }
+        }
+
+        // Any thread
+        void put(T item) {
+            synchronized (queue) {
+                changed.put(key.apply(item), item);
+            }
+        }
+
+        // Any thread
+        void remove(String key) {
+            synchronized (queue) {
+                changed.remove(key);
+                removed.add(key);
+            }
+        }
+
+        // Server thread: serialize the queued changes, or null if there are none
+        Changes drain() {
+            List<String> removed;
+            LinkedHashMap<String, T> changed;
+            synchronized (queue) {
+                if (this.removed.isEmpty() && this.changed.isEmpty()) return null;
+                removed = this.removed;
+                changed = this.changed;
+                this.removed = new ArrayList<>();
+                this.changed = new LinkedHashMap<>();
+            }
+
+            LinkedHashMap<String, NbtCompound> data = new LinkedHashMap<>();
+            for (Map.Entry<String, T> entry : changed.entrySet()) {
+                NbtCompound item = Database.serializeItem(clazz, entry.getValue());
+                if (item == null) {
+                    // already logged; the next snapshot has it
+                    dirty = true;
+                    continue;
+                }
+                data.put(entry.getKey(), item);
+            }
+            return new Changes(removed, data);
+        }
+
+        // Writer thread
+        synchronized void write(NbtCompound fileData) {
+            if (fileData == null || !Database.write(clazz, fileData)) {
+                dirty = true;
+            }
+        }
+
+        // Writer thread
+        synchronized void apply(Changes changes) {
+            try {
+                Database.apply(clazz, changes.removed(), changes.changed());
+            } catch (IOException | RuntimeException e) {
+                FactionsMod.LOGGER.error("Failed to write changed items ({})", clazz, e);
+                // fall back to a snapshot, which covers these changes
+                dirty = true;
+            }
+        }
+    }
+
+    public static void register() {
+        ServerTickEvents.END_SERVER_TICK.register(server -> tick());
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> shutdown());
+    }
+
+    /** Registers a store; {@code snapshot} is only called on the server thread. */
+    public static synchronized <T> void register(Class<T> clazz, Supplier<List<T>> snapshot) {
+        STORES.putIfAbsent(clazz, new Store<>(clazz, snapshot, null));
+    }
+
+    /**
+     * Registers a store that tracks single items. {@code key} must give the same string as the store key that
+     * {@link Database#load} is called with.
+     */
+    public static synchronized <T> void register(
+            Class<T> clazz, Supplier<List<T>> snapshot, Function<T, String> key) {
+        STORES.putIfAbsent(clazz, new Store<>(clazz, snapshot, key));
+    }
+
+    /**
+     * Marks a single item of a tracked store as changed; its current state is written on the next
+     * tick. Safe from any thread. For other stores this marks the whole store dirty.
+     */
+    public static <T> void put(Class<T> clazz, T item) {
+        Store<T> store = get(clazz);
+        if (store == null) return;
+
+        if (!store.tracked()) {
+            store.dirty = true;
+        } else {
+            store.put(item);
+        }
+    }
+
+    /** Records the removal of the item with this key, see {@link #put}. */
+    public static void remove(Class<?> clazz, String key) {
+        Store<?> store = get(clazz);
+        if (store == null) return;
+
+        if (!store.tracked()) {
+            store.dirty = true;
+        } else {
+            store.remove(key);
+        }
+    }
+
+    /** Schedules the whole store to be rewritten within the save interval. Safe from any thread. */
+    public static void markDirty(Class<?> clazz) {
+        Store<?> store = get(clazz);
+        if (store != null) store.dirty = true;
+    }
+
+    /**
+     * Writes the store now, waiting for its writer to get through anything queued before it: a
+     * snapshot if it is dirty or due for one, otherwise just a tracked store's changed items. An
+     * untouched store is skipped entirely.
+     */
+    public static void flush(Class<?> clazz) {
+        Store<?> store = get(clazz);
+        if (store == null) return;
+
+        await(store, schedule(store));
+    }
+
+    /** Flushes every store, letting their writers work at the same time. */
+    public static void flushAll() {
+        List<Store<?>> stores = new ArrayList<>();
+        List<Future<?>> writes = new ArrayList<>();
+        for (Class<?> clazz : classes()) {
+            Store<?> store = get(clazz);
+            stores.add(store);
+            writes.add(schedule(store));
+        }
+
+        for (int i = 0; i < stores.size(); i++) {
+            await(stores.get(i), writes.get(i));
+        }
+    }
+
+    // Server thread: hands the changes and, if the store needs a full write, a snapshot to the
+    // writer, returning the last write, or null if there is nothing to write
+    private static Future<?> schedule(Store<?> store) {
+        Future<?> changes = submit(store);
+        boolean due = Database.isDue(store.clazz, System.currentTimeMillis());
+        if (!store.dirty && !due) return changes;
+
+        NbtCompound fileData = store.take();
+        return store.writer.submit(() -> store.write(fileData));
+    }
+
+    private static void await(Store<?> store, Future<?> write) {
+        if (write == null) return;
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            FactionsMod.LOGGER.error("Failed to write {} data", store.clazz, e.getCause());
+        }
+    }
+
+    private static void tick() {
+        long interval = TimeUnit.SECONDS.toMillis(FactionsMod.CONFIG.SAVE_INTERVAL_SECONDS);
+        long now = System.currentTimeMillis();
+
+        for (Class<?> clazz : classes()) {
+            Store<?> store = get(clazz);
+
+            submit(store);
+            if (Database.isDue(clazz, now)) {
+                store.dirty = true;
+            }
+
+            if (!store.dirty || now - store.lastWrite < interval) continue;
+
+            NbtCompound fileData = store.take();
+            store.writer.execute(() -> store.write(fileData));
+        }
+    }
+
+    // Server thread: hands the queued changes to the writer, or returns null if there are none
+    private static Future<?> submit(Store<?> store) {
+        if (!store.tracked()) return null;
+
+        Changes changes = store.drain();
+        if (changes == null) return null;
+        return store.writer.submit(() -> store.apply(changes));
+    }
+
+    /**
+     * Copies every store into {@code target} and switches to it, so later writes go there too.
+     * Server thread only; blocks until the copy is written.
+     */
+    public static void migrate(Storage target) throws IOException {
+        List<Class<?>> classes = classes();
+        try {
+            List<NbtCompound> snapshots = new ArrayList<>();
+            for (Class<?> clazz : classes) {
+                Store<?> store = get(clazz);
+                // the copy contains everything still queued
+                store.clear();
+                snapshots.add(snapshot(target, store));
+            }
+
+            // let the writes already queued for the current backend finish; nothing new is
+            // handed to the writers while the server thread is in here
+            for (Class<?> clazz : classes) {
+                get(clazz).writer.submit(() -> {}).get();
+            }
+            for (int i = 0; i < classes.size(); i++) {
+                target.write(classes.get(i), snapshots.get(i));
+            }
+            Database.setStorage(target);
+        } catch (InterruptedException | ExecutionException | IOException | RuntimeException e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            // the current backend never saw the cleared changes
+            for (Class<?> clazz : classes) {
+                markDirty(clazz);
+            }
+            target.close();
+            throw new IOException(
+                    "Failed to migrate to " + target.name(),
+                    e instanceof ExecutionException ? e.getCause() : e);
+        }
+    }
+
+    private static <T> NbtCompound snapshot(Storage target, Store<T> store) {
+        return target.snapshot(store.clazz, store.snapshot.get());
+    }
+
+    // The writer threads are kept for the next server in this process (singleplayer); only wait
+    // for queued writes to drain so none is still running when the process exits
+    private static void shutdown() {
+        flushAll();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        try {
+            for (Class<?> clazz : classes()) {
+                get(clazz).writer.submit(() -> {}).get(
+                        Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            Database.getStorage().close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            FactionsMod.LOGGER.warn("Timed out waiting for pending factions data writes", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static synchronized <T> Store<T> get(Class<T> clazz) {
+        return (Store<T>) STORES.get(clazz);
+    }
+
+    private static synchronized List<Class<?>> classes() {
+        return List.copyOf(STORES.keySet());
+    }
+}
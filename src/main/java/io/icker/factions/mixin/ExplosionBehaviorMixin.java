@@ -1,6 +1,7 @@
 package io.icker.factions.mixin;
 
 import io.icker.factions.api.events.PlayerEvents;
+import io.icker.factions.core.ExplosionProtection;
 
 import net.minecraft.block.BlockState;
 import net.minecraft.entity.Entity;
@@ -12,11 +13,14 @@ import net.minecraft.world.explosion.ExplosionBehavior;
 import net.minecraft.world.explosion.ExplosionImpl;
 
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Redirect;
 
 @Mixin(ExplosionImpl.class)
 public class ExplosionBehaviorMixin {
+    @Unique private ExplosionProtection factions$protection;
+
     @Redirect(
             method = "getBlocksToDestroy",
             at =
@@ -31,8 +35,18 @@ public class ExplosionBehaviorMixin {
             BlockPos pos,
             BlockState state,
             float power) {
-        ActionResult result =
-                PlayerEvents.EXPLODE_BLOCK.invoker().onExplodeBlock(explosion, world, pos, state);
+        if (factions$protection == null) {
+            factions$protection = new ExplosionProtection(explosion);
+        }
+
+        ActionResult result = factions$protection.getResult(pos);
+        if (result == ActionResult.PASS) {
+            result =
+                    PlayerEvents.EXPLODE_BLOCK
+                            .invoker()
+                            .onExplodeBlock(explosion, world, pos, state);
+        }
+
         if (result.isAccepted()) {
             return true;
         } else if (result == ActionResult.FAIL) {
@@ -49,6 +49,7 @@ public class AdminGui extends SimpleGui {
                 .setCallback((slotIndex, clickType, actionType) -> {
                     GuiInteract.playClickSound(player);
                     user.bypass = !user.bypass;
+                    user.markDirty();
 
                     // re-render the same slot with updated state
                     this.setSlot(slotIndex, bypassButton(player, user));
@@ -206,7 +206,7 @@ public class InfoGui extends SimpleGui {
                         .setName(
                                 Text.translatable(
                                                 "factions.gui.info.allies.some",
-                                                faction.getMutualAllies().size())
+                                                faction.getMutualAllyCount())
                                         .formatted(Formatting.GREEN))
                         .setLore(allies));
         // Enemies info
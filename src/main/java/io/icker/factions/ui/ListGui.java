@@ -29,7 +29,7 @@ public class ListGui extends PagedGui {
 
     // Comparator for sorting factions by member count (descending) then by name
     private static final Comparator<Faction> FACTION_COMPARATOR =
-            Comparator.comparingInt((Faction f) -> f.getUsers().size()).reversed()
+            Comparator.comparingInt(Faction::getUserCount).reversed()
                     .thenComparing(f -> f.getName().toLowerCase());
 
     public ListGui(ServerPlayerEntity player, User user, @Nullable Runnable closeCallback) {
@@ -79,8 +79,8 @@ public class ListGui extends PagedGui {
 
             boolean isInFaction = faction.equals(this.user.getFaction());
             Home home = faction.getHome();
-            int memberCount = faction.getUsers().size();
-            int claimCount = faction.getClaims().size();
+            int memberCount = faction.getUserCount();
+            int claimCount = faction.getClaimCount();
             int power = faction.getPower();
             int maxPower = faction.calculateMaxPower();
 
@@ -13,9 +13,6 @@ import de.bluecolored.bluemap.api.math.Color;
 import de.bluecolored.bluemap.api.math.Shape;
 
 import io.icker.factions.FactionsMod;
-import io.icker.factions.api.events.ClaimEvents;
-import io.icker.factions.api.events.FactionEvents;
-import io.icker.factions.api.persistents.Claim;
 import io.icker.factions.api.persistents.Faction;
 import io.icker.factions.api.persistents.Home;
 
@@ -24,133 +21,129 @@ import net.minecraft.server.world.ServerWorld;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
-public class BlueMapWrapper {
+public class BlueMapWrapper implements MarkerSync.Target {
     private HashMap<String, MarkerSet> markerSets = new HashMap<>();
+    // number of outline markers by faction and dimension, see key(), and of region markers
+    private final HashMap<String, Integer> markers = new HashMap<>();
     private BlueMapAPI api;
-    private boolean loadWhenReady = false;
 
     public BlueMapWrapper() {
         BlueMapAPI.onEnable(
                 (api) -> {
                     markerSets.clear();
                     this.api = api;
-                    generateMarkers();
+                    MarkerSync.rebuild(this);
                 });
+    }
 
-        ClaimEvents.ADD.register(
-                (Claim claim) -> {
-                    generateMarkers();
-                });
-        ClaimEvents.REMOVE.register(
-                (x, z, level, faction) -> {
-                    generateMarkers();
-                });
+    private static String key(UUID faction, String level) {
+        return faction + "-" + level;
+    }
 
-        WorldUtils.ON_READY.register(
-                () -> {
-                    if (loadWhenReady) {
-                        loadWhenReady = false;
+    private MarkerSet markerSet(String level) {
+        MarkerSet markerSet = markerSets.get(level);
 
-                        generateMarkers();
-                    }
-                });
+        if (markerSet == null) {
+            ServerWorld world = WorldUtils.getWorld(level);
+            markerSet = new MarkerSet("factions-" + level);
 
-        FactionEvents.SET_HOME.register(this::setHome);
-        FactionEvents.MODIFY.register(faction -> generateMarkers());
-        FactionEvents.MEMBER_JOIN.register((faction, user) -> generateMarkers());
-        FactionEvents.MEMBER_LEAVE.register((faction, user) -> generateMarkers());
-        FactionEvents.POWER_CHANGE.register((faction, oldPower) -> generateMarkers());
-        FactionEvents.DISBAND.register((faction) -> generateMarkers());
-    }
+            for (BlueMapMap map : api.getWorld(world).get().getMaps()) {
+                map.getMarkerSets().put("factions-" + level, markerSet);
+            }
 
-    private void generateMarkers() {
-        if (!WorldUtils.isReady()) {
-            loadWhenReady = true;
-            FactionsMod.LOGGER.info("Server hasn't loaded, postponing dynmap marker loading");
-            return;
+            markerSets.put(level, markerSet);
         }
+        return markerSet;
+    }
 
+    @Override
+    public void clear() {
         for (MarkerSet set : markerSets.values()) {
-            for (String id : set.getMarkers().keySet()) {
+            for (String id : List.copyOf(set.getMarkers().keySet())) {
                 set.remove(id);
             }
         }
+        markers.clear();
+    }
 
-        for (Faction faction : Faction.all()) {
-            Home home = faction.getHome();
-            if (home != null) {
-                setHome(faction, home);
-            }
+    @Override
+    public void update(Faction faction, Territory territory) {
+        String level = territory.level();
+        remove(faction.getID(), level);
 
-            String info = getInfo(faction);
-
-            for (Map.Entry<String, Set<Vector2i>> entry :
-                    ClaimGrouper.separateClaimsByLevel(faction).entrySet()) {
-                String level = entry.getKey();
-                for (Map<Vector2i, Vector2i[]> group :
-                        ClaimGrouper.convertClaimsToLineSegmentGroups(entry.getValue())) {
-                    List<List<Vector2i>> outlines =
-                            ClaimGrouper.convertLineSegmentsToOutlines(group);
-                    List<Shape> shapes =
-                            outlines.stream()
-                                    .map(
-                                            (hole) ->
-                                                    new Shape(
-                                                            hole.stream()
-                                                                    .map(
-                                                                            (point) ->
-                                                                                    new Vector2d(
-                                                                                            point
-                                                                                                    .getX(),
-                                                                                            point
-                                                                                                    .getY()))
-                                                                    .collect(Collectors.toList())))
-                                    .collect(Collectors.toList());
-
-                    MarkerSet markerSet = markerSets.get(level);
-
-                    if (markerSet == null) {
-                        ServerWorld world = WorldUtils.getWorld(level);
-                        markerSet = new MarkerSet("factions-" + level);
-
-                        for (BlueMapMap map : api.getWorld(world).get().getMaps()) {
-                            map.getMarkerSets().put("factions-" + level, markerSet);
-                        }
-
-                        markerSets.put(level, markerSet);
-                    }
-
-                    ExtrudeMarker marker =
-                            ExtrudeMarker.builder()
-                                    .position(
-                                            (double) outlines.get(0).get(0).getX(),
-                                            320,
-                                            (double) outlines.get(0).get(0).getY())
-                                    .shape(shapes.removeFirst(), -64, 320)
-                                    .holes(shapes.toArray(new Shape[0]))
-                                    .fillColor(
-                                            new Color(
-                                                    faction.getColor().getColorValue()
-                                                            | 0x40000000))
-                                    .lineColor(
-                                            new Color(
-                                                    faction.getColor().getColorValue()
-                                                            | 0xFF000000))
-                                    .label(faction.getName())
-                                    .detail(info)
-                                    .build();
-
-                    markerSet.put(UUID.randomUUID().toString(), marker);
-                }
+        Territory region = territory.region();
+        if (region == null) {
+            addMarkers(faction, territory, -1, -1);
+        } else {
+            // the regions from afar, the chunks up close
+            double distance = FactionsMod.CONFIG.MAPS.BLUEMAP_DETAIL_DISTANCE;
+            addMarkers(faction, territory, -1, distance);
+            addMarkers(faction, region, distance, -1);
+        }
+    }
+
+    // Adds a marker per polygon, shown between the camera distances unless -1
+    private void addMarkers(
+            Faction faction, Territory territory, double minDistance, double maxDistance) {
+        String level = territory.level();
+        String prefix = key(faction.getID(), level) + (territory.cellSize() > 1 ? "-region" : "");
+        String info = getInfo(faction);
+        MarkerSet markerSet = markerSet(level);
+        int index = 0;
+        for (List<List<Vector2i>> outlines : territory.polygons()) {
+            List<Shape> shapes =
+                    outlines.stream()
+                            .map(
+                                    (hole) ->
+                                            new Shape(
+                                                    hole.stream()
+                                                            .map(
+                                                                    (point) ->
+                                                                            new Vector2d(
+                                                                                    point.getX(),
+                                                                                    point.getY()))
+                                                            .collect(Collectors.toList())))
+                            .collect(Collectors.toList());
+
+            ExtrudeMarker.Builder builder =
+                    ExtrudeMarker.builder()
+                            .position(
+                                    (double) outlines.get(0).get(0).getX(),
+                                    320,
+                                    (double) outlines.get(0).get(0).getY())
+                            .shape(shapes.removeFirst(), -64, 320)
+                            .holes(shapes.toArray(new Shape[0]))
+                            .fillColor(new Color(faction.getColor().getColorValue() | 0x40000000))
+                            .lineColor(new Color(faction.getColor().getColorValue() | 0xFF000000))
+                            .label(faction.getName())
+                            .detail(info);
+            if (minDistance >= 0) builder.minDistance(minDistance);
+            if (maxDistance >= 0) builder.maxDistance(maxDistance);
+
+            markerSet.put(prefix + "-" + index++, builder.build());
+        }
+
+        markers.put(prefix, index);
+    }
+
+    @Override
+    public void remove(UUID faction, String level) {
+        MarkerSet markerSet = markerSets.get(level);
+        for (String prefix : List.of(key(faction, level), key(faction, level) + "-region")) {
+            Integer count = markers.remove(prefix);
+            if (count == null || markerSet == null) continue;
+
+            for (int i = 0; i < count; i++) {
+                markerSet.remove(prefix + "-" + i);
             }
         }
     }
 
-    private void setHome(Faction faction, Home home) {
+    @Override
+    public void setHome(Faction faction, Home home) {
         if (home == null) {
             for (Map.Entry<String, MarkerSet> entry : markerSets.entrySet()) {
                 entry.getValue().remove(faction.getID().toString() + "-home");
@@ -158,18 +151,7 @@ public class BlueMapWrapper {
             return;
         }
 
-        MarkerSet markerSet = markerSets.get(home.level);
-
-        if (markerSet == null) {
-            ServerWorld world = WorldUtils.getWorld(home.level);
-            markerSet = new MarkerSet("factions-" + home.level);
-
-            for (BlueMapMap map : api.getWorld(world).get().getMaps()) {
-                map.getMarkerSets().put("factions-" + home.level, markerSet);
-            }
-
-            markerSets.put(home.level, markerSet);
-        }
+        MarkerSet markerSet = markerSet(home.level);
 
         for (Map.Entry<String, MarkerSet> entry : markerSets.entrySet()) {
             if (entry.getKey().equals(home.level)) {
@@ -205,7 +187,7 @@ public class BlueMapWrapper {
                 + faction.getPower()
                 + "<br>"
                 + "Number of members: "
-                + faction.getUsers().size(); // + "<br>"
+                + faction.getUserCount(); // + "<br>"
         // + "Allies: " + Ally.getAllies(faction.getName).stream().map(ally ->
         // ally.target).collect(Collectors.joining(", "));
     }
@@ -0,0 +1,21 @@
+package io.icker.factions.util;
+
+/**
+ * Packs chunk coordinates into a single {@code long} so they can be used as primitive map keys.
+ * The x coordinate occupies the high 32 bits and the z coordinate the low 32 bits.
+ */
+public final class ChunkKey {
+    private ChunkKey() {}
+
+    public static long pack(int x, int z) {
+        return (((long) x) << 32) | (z & 0xffffffffL);
+    }
+
+    public static int x(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int z(long key) {
+        return (int) key;
+    }
+}
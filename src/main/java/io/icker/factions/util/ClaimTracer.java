@@ -0,0 +1,589 @@
+package io.icker.factions.util;
+
+import com.flowpowered.math.vector.Vector2i;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Traces the same outlines as {@link ClaimGrouper}, without a BFS over {@link Vector2i} sets. The
+ * claims are sorted into runs of consecutive chunks per row, runs that touch a run in the next row
+ * are joined with union-find, and the border edges are read off the runs, so the work and memory
+ * grow with the number of runs and corners rather than with the number of chunks. Coordinates are
+ * kept packed in {@code long}s until the corners are returned.
+ *
+ * <p>Edges run the same way as in {@link ClaimGrouper#convertClaimsToLineSegmentGroups}, and where
+ * two edges leave a corner the counter-clockwise one is taken, as {@link
+ * ClaimGrouper#convertLineSegmentsToOutlines} does, so the outlines and holes are the same up to
+ * the corner each one starts at.
+ *
+ * <p>Only the corners where the border turns are kept, so straight runs of chunk edges become a
+ * single side; this loses nothing on a chunk grid. {@link #getEdges()} and {@link #getVertices()}
+ * tell how much that saved.
+ */
+public final class ClaimTracer {
+    // 0 is up (+z), 1 is right (+x), 2 is down, 3 is left, as in ClaimGrouper
+    private static final int UP = 0;
+    private static final int RIGHT = 1;
+    private static final int DOWN = 2;
+    private static final int LEFT = 3;
+
+    // sorted by z, then x, see cell()
+    private final long[] cells;
+    private final int[] runOfCell;
+    private final int[] runZ;
+    private final int[] runX0;
+    private final int[] runX1;
+    private final int runs;
+    private final int[] parent;
+    private final int blocksPerCell;
+
+    // corner -> the corners its border edges lead to, one or two
+    private final LongHashMap<long[]> edges;
+    private long[] corners = new long[16];
+    private int cornerCount;
+
+    private final List<List<List<Vector2i>>> outlines = new ArrayList<>();
+    private final List<List<Vector2i>> borders = new ArrayList<>();
+    private int edgeCount;
+    private int vertexCount;
+
+    public ClaimTracer(Set<Vector2i> claims) {
+        this(claims, 16);
+    }
+
+    /** Traces cells of the given size instead of chunks, such as regions of several chunks. */
+    public ClaimTracer(Set<Vector2i> claims, int blocksPerCell) {
+        this.blocksPerCell = blocksPerCell;
+        cells = new long[claims.size()];
+        int i = 0;
+        for (Vector2i claim : claims) {
+            cells[i++] = cell(claim.getX(), claim.getY());
+        }
+        Arrays.sort(cells);
+
+        runOfCell = new int[cells.length];
+        runZ = new int[cells.length];
+        runX0 = new int[cells.length];
+        runX1 = new int[cells.length];
+        int count = 0;
+        for (i = 0; i < cells.length; i++) {
+            int x = cellX(cells[i]);
+            int z = cellZ(cells[i]);
+            if (count == 0 || runZ[count - 1] != z || runX1[count - 1] != x - 1) {
+                runZ[count] = z;
+                runX0[count] = x;
+                count++;
+            }
+            runX1[count - 1] = x;
+            runOfCell[i] = count - 1;
+        }
+        runs = count;
+
+        parent = new int[runs];
+        for (i = 0; i < runs; i++) {
+            parent[i] = i;
+        }
+        edges = new LongHashMap<>(runs * 4);
+
+        connectRows();
+        addEdges();
+        trace();
+    }
+
+    /**
+     * One entry per connected group of claims: its outline, followed by its holes, like {@link
+     * ClaimGrouper#convertLineSegmentsToOutlines}. Corners are in block coordinates.
+     */
+    public List<List<List<Vector2i>>> getOutlines() {
+        return outlines;
+    }
+
+    /**
+     * One outline per connected group of claims, with its holes joined to it along chunk borders,
+     * like the groups of {@link ClaimGrouper#convertClaimsToLineSegmentGroupsWithoutHoles}.
+     */
+    public List<List<Vector2i>> getBorders() {
+        return borders;
+    }
+
+    /** Cell edges along the outlines and holes, one per side of a claim on the border. */
+    public int getEdges() {
+        return edgeCount;
+    }
+
+    /** Corners in {@link #getOutlines()}, after the straight runs of edges were merged. */
+    public int getVertices() {
+        return vertexCount;
+    }
+
+    private static long cell(int x, int z) {
+        // flipping the sign bit of x makes the unsigned low half sort like the signed value
+        return ((long) z << 32) | ((x ^ Integer.MIN_VALUE) & 0xffffffffL);
+    }
+
+    private static int cellX(long cell) {
+        return (int) cell ^ Integer.MIN_VALUE;
+    }
+
+    private static int cellZ(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    private boolean isClaimed(int x, int z) {
+        return Arrays.binarySearch(cells, cell(x, z)) >= 0;
+    }
+
+    private int find(int run) {
+        while (parent[run] != run) {
+            parent[run] = parent[parent[run]];
+            run = parent[run];
+        }
+        return run;
+    }
+
+    // Joins every run with the runs it overlaps in the row below
+    private void connectRows() {
+        int row = 0;
+        while (row < runs) {
+            int next = rowEnd(row);
+            if (next < runs && runZ[next] == runZ[row] + 1) {
+                int end = rowEnd(next);
+                int a = row;
+                int b = next;
+                while (a < next && b < end) {
+                    if (runX0[a] <= runX1[b] && runX0[b] <= runX1[a]) {
+                        parent[find(a)] = find(b);
+                    }
+                    if (runX1[a] < runX1[b]) {
+                        a++;
+                    } else {
+                        b++;
+                    }
+                }
+            }
+            row = next;
+        }
+    }
+
+    private int rowEnd(int row) {
+        int end = row;
+        while (end < runs && runZ[end] == runZ[row]) {
+            end++;
+        }
+        return end;
+    }
+
+    private void addEdges() {
+        int row = 0;
+        int above = -1;
+        while (row < runs) {
+            int end = rowEnd(row);
+            int z = runZ[row];
+            int aboveEnd = above == -1 || runZ[above] != z - 1 ? -1 : row;
+            int below = end < runs && runZ[end] == z + 1 ? end : -1;
+            int belowEnd = below == -1 ? -1 : rowEnd(below);
+
+            int a = aboveEnd == -1 ? -1 : above;
+            int b = below;
+            for (int run = row; run < end; run++) {
+                int x0 = runX0[run];
+                int x1 = runX1[run];
+                addEdge(x0, z + 1, x0, z);
+                addEdge(x1 + 1, z, x1 + 1, z + 1);
+
+                // the parts of the run's top not covered by the row above
+                if (a == -1) {
+                    addEdge(x0, z, x1 + 1, z);
+                } else {
+                    while (a < aboveEnd && runX1[a] < x0) a++;
+                    int x = x0;
+                    for (int i = a; i < aboveEnd && runX0[i] <= x1; i++) {
+                        if (runX0[i] > x) addEdge(x, z, runX0[i], z);
+                        x = Math.max(x, runX1[i] + 1);
+                    }
+                    if (x <= x1) addEdge(x, z, x1 + 1, z);
+                }
+
+                // and of its bottom, right to left
+                if (b == -1) {
+                    addEdge(x1 + 1, z + 1, x0, z + 1);
+                } else {
+                    while (b < belowEnd && runX1[b] < x0) b++;
+                    int x = x0;
+                    for (int i = b; i < belowEnd && runX0[i] <= x1; i++) {
+                        if (runX0[i] > x) addEdge(runX0[i], z + 1, x, z + 1);
+                        x = Math.max(x, runX1[i] + 1);
+                    }
+                    if (x <= x1) addEdge(x1 + 1, z + 1, x, z + 1);
+                }
+            }
+
+            above = row;
+            row = end;
+        }
+    }
+
+    private void addEdge(int startX, int startZ, int endX, int endZ) {
+        long start = ChunkKey.pack(startX, startZ);
+        long end = ChunkKey.pack(endX, endZ);
+        long[] ends = edges.get(start);
+        if (ends == null) {
+            edges.put(start, new long[] {end});
+            if (cornerCount == corners.length) {
+                corners = Arrays.copyOf(corners, cornerCount * 2);
+            }
+            corners[cornerCount++] = start;
+        } else {
+            edges.put(start, new long[] {ends[0], end});
+        }
+    }
+
+    private static int getDir(long end, long start) {
+        if (ChunkKey.z(end) > ChunkKey.z(start)) {
+            return UP;
+        } else if (ChunkKey.z(end) < ChunkKey.z(start)) {
+            return DOWN;
+        } else if (ChunkKey.x(end) > ChunkKey.x(start)) {
+            return RIGHT;
+        } else {
+            return LEFT;
+        }
+    }
+
+    private static boolean isCounterClockwiseTurn(int next, int last) {
+        if (next == UP && last == LEFT) {
+            return false;
+        } else if (next == LEFT && last == UP) {
+            return true;
+        } else {
+            return next < last;
+        }
+    }
+
+    // The group of the claim on the inner side of the edge leaving this corner
+    private int groupOf(long start, int dir) {
+        int x = ChunkKey.x(start);
+        int z = ChunkKey.z(start);
+        int index =
+                switch (dir) {
+                    case RIGHT -> Arrays.binarySearch(cells, cell(x, z));
+                    case LEFT -> Arrays.binarySearch(cells, cell(x - 1, z - 1));
+                    case UP -> Arrays.binarySearch(cells, cell(x - 1, z));
+                    default -> Arrays.binarySearch(cells, cell(x, z - 1));
+                };
+        return find(runOfCell[index]);
+    }
+
+    private void trace() {
+        // by the root of each group, in the order the groups were first met
+        LongHashMap<List<long[]>> holes = new LongHashMap<>();
+        LongHashMap<long[]> outer = new LongHashMap<>();
+        List<Integer> groups = new ArrayList<>();
+
+        int next = 0;
+        boolean fallback = false;
+        while (!edges.isEmpty()) {
+            // start where only one edge leaves, so the first turn is never a choice
+            while (next < cornerCount) {
+                long[] ends = edges.get(corners[next]);
+                if (ends != null && (ends.length == 1 || fallback)) break;
+                next++;
+            }
+            if (next == cornerCount) {
+                next = 0;
+                fallback = true;
+                continue;
+            }
+
+            long start = corners[next];
+            long[] points = new long[8];
+            int[] dirs = new int[8];
+            int length = 0;
+
+            long point = start;
+            int lastDir = -1;
+            long[] ends;
+            while ((ends = edges.get(point)) != null) {
+                long end;
+                if (ends.length > 1) {
+                    int dir0 = getDir(ends[0], point);
+                    int dir1 = getDir(ends[1], point);
+                    int chosen;
+                    if ((dir0 + 2) % 4 == lastDir) {
+                        chosen = 1;
+                    } else if ((dir1 + 2) % 4 == lastDir) {
+                        chosen = 0;
+                    } else if (isCounterClockwiseTurn(dir0, lastDir)) {
+                        chosen = 0;
+                    } else if (isCounterClockwiseTurn(dir1, lastDir)) {
+                        chosen = 1;
+                    } else if (dir0 == lastDir) {
+                        chosen = 0;
+                    } else {
+                        chosen = 1;
+                    }
+                    end = ends[chosen];
+                    edges.put(point, new long[] {ends[1 - chosen]});
+                } else {
+                    end = ends[0];
+                    edges.remove(point);
+                }
+
+                if (length == points.length) {
+                    points = Arrays.copyOf(points, length * 2);
+                    dirs = Arrays.copyOf(dirs, length * 2);
+                }
+                points[length] = point;
+                dirs[length] = getDir(end, point);
+                lastDir = dirs[length];
+                length++;
+                point = end;
+            }
+
+            // keep the corners where the direction turns, and count the turns like ClaimGrouper
+            long[] ring = new long[length];
+            int size = 0;
+            int rotations = 0;
+            for (int i = 0; i < length; i++) {
+                int in = dirs[(i + length - 1) % length];
+                int out = dirs[i];
+                if (out == UP && in == LEFT) {
+                    rotations += 1;
+                } else if (out == LEFT && in == UP) {
+                    rotations -= 1;
+                } else {
+                    rotations += out - in;
+                }
+                if (in % 2 != out % 2) {
+                    ring[size++] = points[i];
+                }
+            }
+            ring = Arrays.copyOf(ring, size);
+            edgeCount += length;
+            vertexCount += size;
+
+            int group = groupOf(start, dirs[0]);
+            if (!outer.containsKey(group) && !holes.containsKey(group)) {
+                groups.add(group);
+            }
+            if (rotations < 0 && !outer.containsKey(group)) {
+                outer.put(group, ring);
+            } else {
+                List<long[]> list = holes.get(group);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    holes.put(group, list);
+                }
+                list.add(ring);
+            }
+        }
+
+        for (int group : groups) {
+            long[] ring = outer.get(group);
+            if (ring == null) continue;
+            List<long[]> cutouts = holes.get(group);
+            if (cutouts == null) cutouts = List.of();
+
+            List<List<Vector2i>> outline = new ArrayList<>();
+            outline.add(toBlocks(ring));
+            for (long[] hole : cutouts) {
+                outline.add(toBlocks(hole));
+            }
+            outlines.add(List.copyOf(outline));
+
+            List<long[]> joined = join(ring, cutouts);
+            for (long[] border : joined) {
+                borders.add(toBlocks(border));
+            }
+        }
+    }
+
+    /**
+     * Joins each hole to the outline with a line straight up from its top left corner to the first
+     * border above, going there and back, so the group can be drawn as a single line. Holes are
+     * joined from the top down, so the border above is always part of the line by then. A hole
+     * that can't be reached that way is left as a separate line.
+     */
+    private List<long[]> join(long[] ring, List<long[]> cutouts) {
+        if (cutouts.isEmpty()) return List.of(ring);
+
+        long[][] rings = new long[cutouts.size() + 1][];
+        rings[0] = ring;
+        for (int i = 0; i < cutouts.size(); i++) {
+            rings[i + 1] = rotateToTopLeft(cutouts.get(i));
+        }
+        Arrays.sort(
+                rings,
+                1,
+                rings.length,
+                Comparator.comparingLong((long[] hole) -> ChunkKey.z(hole[0]))
+                        .thenComparingLong(hole -> ChunkKey.x(hole[0])));
+
+        // the horizontal segments of every ring, by line and then by their left end
+        List<long[]> segments = new ArrayList<>();
+        for (int r = 0; r < rings.length; r++) {
+            for (int i = 0; i < rings[r].length; i++) {
+                long a = rings[r][i];
+                long b = rings[r][(i + 1) % rings[r].length];
+                if (ChunkKey.z(a) != ChunkKey.z(b)) continue;
+                segments.add(
+                        new long[] {
+                            ChunkKey.z(a),
+                            Math.min(ChunkKey.x(a), ChunkKey.x(b)),
+                            Math.max(ChunkKey.x(a), ChunkKey.x(b)),
+                            r,
+                            i
+                        });
+            }
+        }
+        segments.sort(
+                Comparator.comparingLong((long[] segment) -> segment[0])
+                        .thenComparingLong(segment -> segment[1]));
+
+        // holes joined to each segment, as {hole, bridge}, by the ring and segment index
+        LongHashMap<List<long[]>> joins = new LongHashMap<>();
+        List<Integer> separate = new ArrayList<>();
+        separate.add(0);
+        for (int h = 1; h < rings.length; h++) {
+            int x = ChunkKey.x(rings[h][0]);
+            int z = ChunkKey.z(rings[h][0]);
+            while (isClaimed(x - 1, z - 1) && isClaimed(x, z - 1)) {
+                z--;
+            }
+
+            long[] segment = findSegment(segments, x, z, h);
+            if (segment == null) {
+                separate.add(h);
+                continue;
+            }
+            long key = (segment[3] << 32) | segment[4];
+            List<long[]> list = joins.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                joins.put(key, list);
+            }
+            list.add(new long[] {h, ChunkKey.pack(x, z)});
+        }
+
+        List<long[]> result = new ArrayList<>();
+        for (int r : separate) {
+            long[] line = new long[16];
+            int[] size = {0};
+            line = emit(rings, joins, r, line, size);
+            result.add(simplify(line, size[0]));
+        }
+        return result;
+    }
+
+    // A segment on this line through x of a ring joined before the hole, or null
+    private static long[] findSegment(List<long[]> segments, int x, int z, int hole) {
+        int low = 0;
+        int high = segments.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long[] segment = segments.get(mid);
+            if (segment[0] < z || (segment[0] == z && segment[1] <= x)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // segments on a line only share their ends, so at most the two before can contain x
+        for (int i = low - 1; i >= 0 && i >= low - 2; i--) {
+            long[] segment = segments.get(i);
+            if (segment[0] == z && segment[2] >= x && segment[3] < hole) return segment;
+        }
+        return null;
+    }
+
+    // Appends the ring and the holes joined to it, with their own holes, to the line
+    private static long[] emit(
+            long[][] rings, LongHashMap<List<long[]>> joins, int r, long[] line, int[] size) {
+        long[] ring = rings[r];
+        for (int i = 0; i < ring.length; i++) {
+            line = append(line, size, ring[i]);
+
+            List<long[]> list = joins.get(((long) r << 32) | i);
+            if (list == null) continue;
+            // in the order the segment passes their bridges
+            long start = ring[i];
+            list.sort(
+                    Comparator.comparingLong(
+                            (long[] join) ->
+                                    Math.abs(ChunkKey.x(join[1]) - ChunkKey.x(start))));
+            for (long[] join : list) {
+                int hole = (int) join[0];
+                line = append(line, size, join[1]);
+                line = emit(rings, joins, hole, line, size);
+                line = append(line, size, rings[hole][0]);
+                line = append(line, size, join[1]);
+            }
+        }
+        return line;
+    }
+
+    private static long[] append(long[] line, int[] size, long point) {
+        if (size[0] == line.length) {
+            line = Arrays.copyOf(line, size[0] * 2);
+        }
+        line[size[0]++] = point;
+        return line;
+    }
+
+    private static long[] rotateToTopLeft(long[] ring) {
+        int first = 0;
+        for (int i = 1; i < ring.length; i++) {
+            int z = ChunkKey.z(ring[i]);
+            int firstZ = ChunkKey.z(ring[first]);
+            if (z < firstZ || (z == firstZ && ChunkKey.x(ring[i]) < ChunkKey.x(ring[first]))) {
+                first = i;
+            }
+        }
+        long[] rotated = new long[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            rotated[i] = ring[(first + i) % ring.length];
+        }
+        return rotated;
+    }
+
+    // Drops repeated points, and the points the bridges pass straight through
+    private static long[] simplify(long[] line, int size) {
+        long[] result = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (count == 0 || result[count - 1] != line[i]) {
+                result[count++] = line[i];
+            }
+        }
+        while (count > 1 && result[count - 1] == result[0]) {
+            count--;
+        }
+        if (count < 3) return Arrays.copyOf(result, count);
+
+        // the kept points before i are in place, and the ones from i on are still untouched
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            long previous = kept == 0 ? result[count - 1] : result[kept - 1];
+            long next = result[(i + 1) % count];
+            if (getDir(result[i], previous) != getDir(next, result[i])) {
+                result[kept++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, kept);
+    }
+
+    private List<Vector2i> toBlocks(long[] ring) {
+        List<Vector2i> points = new ArrayList<>(ring.length);
+        for (long corner : ring) {
+            points.add(
+                    new Vector2i(
+                            ChunkKey.x(corner) * blocksPerCell,
+                            ChunkKey.z(corner) * blocksPerCell));
+        }
+        return List.copyOf(points);
+    }
+}
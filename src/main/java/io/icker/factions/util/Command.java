@@ -11,6 +11,7 @@ import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 import java.util.Arrays;
+import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
 public interface Command {
@@ -85,6 +86,8 @@ public interface Command {
     }
 
     public interface Suggests {
+        int MAX_FACTION_SUGGESTIONS = 50;
+
         String[] run(User user);
 
         public static SuggestionProvider<ServerCommandSource> allFactions() {
@@ -92,18 +95,11 @@ public interface Command {
         }
 
         public static SuggestionProvider<ServerCommandSource> allFactions(boolean includeYou) {
-            return suggest(
-                    user ->
-                            Faction.all().stream()
-                                    .filter(
-                                            f ->
-                                                    includeYou
-                                                            || !user.isInFaction()
-                                                            || !user.getFaction()
-                                                                    .getID()
-                                                                    .equals(f.getID()))
-                                    .map(f -> f.getName())
-                                    .toArray(String[]::new));
+            return factions(
+                    (user, f) ->
+                            includeYou
+                                    || !user.isInFaction()
+                                    || !f.getID().equals(user.getFactionID()));
         }
 
         static SuggestionProvider<ServerCommandSource> allPlayers() {
@@ -159,21 +155,11 @@ public interface Command {
 
 
         public static SuggestionProvider<ServerCommandSource> openFactions() {
-            return suggest(
-                    user ->
-                            Faction.all().stream()
-                                    .filter(f -> f.isOpen())
-                                    .map(f -> f.getName())
-                                    .toArray(String[]::new));
+            return factions((user, f) -> f.isOpen());
         }
 
         public static SuggestionProvider<ServerCommandSource> openInvitedFactions() {
-            return suggest(
-                    user ->
-                            Faction.all().stream()
-                                    .filter(f -> f.isOpen() || f.isInvited(user.getID()))
-                                    .map(f -> f.getName())
-                                    .toArray(String[]::new));
+            return factions((user, f) -> f.isOpen() || f.isInvited(user.getID()));
         }
 
         public static <T extends Enum<T>> SuggestionProvider<ServerCommandSource> enumSuggestion(
@@ -185,6 +171,25 @@ public interface Command {
                                     .toArray(String[]::new));
         }
 
+        /**
+         * Suggests names of factions matching the filter that start with what has been typed so
+         * far, stopping after {@link #MAX_FACTION_SUGGESTIONS}.
+         */
+        public static SuggestionProvider<ServerCommandSource> factions(
+                BiPredicate<User, Faction> filter) {
+            return (context, builder) -> {
+                ServerPlayerEntity entity = context.getSource().getPlayerOrThrow();
+                User user = User.get(entity.getUuid());
+                int suggested = 0;
+                for (Faction faction : Faction.getByNamePrefix(builder.getRemaining())) {
+                    if (!filter.test(user, faction)) continue;
+                    builder.suggest(faction.getName());
+                    if (++suggested >= MAX_FACTION_SUGGESTIONS) break;
+                }
+                return builder.buildFuture();
+            };
+        }
+
         public static SuggestionProvider<ServerCommandSource> suggest(Suggests sug) {
             return (context, builder) -> {
                 ServerPlayerEntity entity = context.getSource().getPlayerOrThrow();
@@ -0,0 +1,125 @@
+package io.icker.factions.util;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps dimension ids (e.g. {@code minecraft:overworld}) to small integer handles so claim lookups
+ * can index by int instead of building and hashing strings. Handles are assigned on first use and
+ * never change for the lifetime of the process; the dimension string is only needed again when
+ * saving or displaying.
+ *
+ * <p>Handles can be created for dimensions that are not loaded (e.g. claims read from disk before
+ * the worlds exist), so {@link #getWorld(int)} is the authority on whether a dimension is valid.
+ */
+public final class DimensionRegistry {
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<RegistryKey<World>, Integer> KEYS =
+            new ConcurrentHashMap<>();
+    private static final List<String> NAMES = new ArrayList<>();
+    private static volatile ServerWorld[] worlds = new ServerWorld[0];
+
+    private DimensionRegistry() {}
+
+    public static void register() {
+        ServerWorldEvents.LOAD.register((server, world) -> load(world));
+        ServerWorldEvents.UNLOAD.register((server, world) -> unload(world));
+    }
+
+    /** Returns the handle for a dimension id, assigning a new one if it has not been seen. */
+    public static int of(String level) {
+        Integer id = IDS.get(level);
+        return id != null ? id : intern(level);
+    }
+
+    public static int of(World world) {
+        Integer id = KEYS.get(world.getRegistryKey());
+        return id != null ? id : of(world.getRegistryKey().getValue().toString());
+    }
+
+    /**
+     * Returns the handle for a dimension id without assigning one, accepting ids without a
+     * namespace the same way {@link Identifier#of(String)} does.
+     *
+     * @return the handle, or -1 if the dimension has never been seen
+     */
+    public static int find(String level) {
+        Integer id = IDS.get(level);
+        if (id != null) return id;
+
+        Identifier identifier = Identifier.tryParse(level);
+        if (identifier == null) return -1;
+        id = IDS.get(identifier.toString());
+        return id != null ? id : -1;
+    }
+
+    public static String getName(int id) {
+        synchronized (NAMES) {
+            return NAMES.get(id);
+        }
+    }
+
+    /**
+     * @return the loaded world for the handle, or null if that dimension is not loaded
+     */
+    @Nullable
+    public static ServerWorld getWorld(int id) {
+        ServerWorld[] loaded = worlds;
+        return id >= 0 && id < loaded.length ? loaded[id] : null;
+    }
+
+    public static boolean isLoaded(int id) {
+        return getWorld(id) != null;
+    }
+
+    private static int intern(String level) {
+        synchronized (NAMES) {
+            return IDS.computeIfAbsent(
+                    level,
+                    name -> {
+                        NAMES.add(name);
+                        return NAMES.size() - 1;
+                    });
+        }
+    }
+
+    private static void load(ServerWorld world) {
+        int id = of(world.getRegistryKey().getValue().toString());
+        KEYS.put(world.getRegistryKey(), id);
+
+        synchronized (NAMES) {
+            ServerWorld[] loaded = worlds;
+            if (id >= loaded.length) {
+                ServerWorld[] grown = new ServerWorld[NAMES.size()];
+                System.arraycopy(loaded, 0, grown, 0, loaded.length);
+                loaded = grown;
+            } else {
+                loaded = loaded.clone();
+            }
+            loaded[id] = world;
+            worlds = loaded;
+        }
+    }
+
+    private static void unload(ServerWorld world) {
+        Integer id = KEYS.get(world.getRegistryKey());
+        if (id == null) return;
+
+        synchronized (NAMES) {
+            ServerWorld[] loaded = worlds.clone();
+            if (id < loaded.length && loaded[id] == world) {
+                loaded[id] = null;
+                worlds = loaded;
+            }
+        }
+    }
+}
@@ -3,15 +3,12 @@ package io.icker.factions.util;
 import com.flowpowered.math.vector.Vector2i;
 
 import io.icker.factions.FactionsMod;
-import io.icker.factions.api.events.ClaimEvents;
-import io.icker.factions.api.events.FactionEvents;
 import io.icker.factions.api.persistents.Claim;
 import io.icker.factions.api.persistents.Faction;
 import io.icker.factions.api.persistents.Home;
 
 import net.minecraft.registry.RegistryKey;
 import net.minecraft.server.world.ServerWorld;
-import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 
 import org.dynmap.DynmapCommonAPI;
@@ -23,16 +20,17 @@ import org.dynmap.markers.MarkerAPI;
 import org.dynmap.markers.MarkerSet;
 import org.dynmap.markers.PolyLineMarker;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 
-public class DynmapWrapper {
+public class DynmapWrapper implements MarkerSync.Target {
     private DynmapCommonAPI api;
     private MarkerAPI markerApi;
     private MarkerSet markerSet;
-    private boolean loadWhenReady = false;
+    // claim markers by faction and dimension, see key()
+    private final HashMap<String, List<GenericMarker>> markers = new HashMap<>();
 
     public DynmapWrapper() {
         DynmapCommonAPIListener.register(
@@ -51,43 +49,17 @@ public class DynmapWrapper {
                                             true);
                         }
                         markerSet.getMarkers().forEach(GenericMarker::deleteMarker);
-                        generateMarkers();
+                        MarkerSync.rebuild(this);
                     }
                 });
-
-        ClaimEvents.ADD.register(
-                (claim) -> {
-                    generateMarkers();
-                });
-        ClaimEvents.REMOVE.register(
-                (x, z, level, faction) -> {
-                    generateMarkers();
-                });
-
-        WorldUtils.ON_READY.register(
-                () -> {
-                    if (loadWhenReady) {
-                        loadWhenReady = false;
-
-                        generateMarkers();
-                    }
-                });
-
-        FactionEvents.SET_HOME.register(this::setHome);
-        FactionEvents.MODIFY.register(faction -> updateFaction(faction));
-        FactionEvents.MEMBER_JOIN.register((faction, user) -> updateFaction(faction));
-        FactionEvents.MEMBER_LEAVE.register((faction, user) -> updateFaction(faction));
-        FactionEvents.POWER_CHANGE.register((faction, oldPower) -> updateFaction(faction));
-        FactionEvents.DISBAND.register((faction) -> generateMarkers());
     }
 
-    private void generateMarkers() {
-        if (!WorldUtils.isReady() || !WorldUtils.hasWorlds()) {
-            loadWhenReady = true;
-            FactionsMod.LOGGER.info("Server hasn't loaded, postponing dynmap marker loading");
-            return;
-        }
+    private static String key(UUID faction, String level) {
+        return faction + "-" + level;
+    }
 
+    @Override
+    public void clear() {
         for (PolyLineMarker marker : markerSet.getPolyLineMarkers()) {
             marker.deleteMarker();
         }
@@ -95,97 +67,110 @@ public class DynmapWrapper {
         for (AreaMarker marker : markerSet.getAreaMarkers()) {
             marker.deleteMarker();
         }
+        markers.clear();
+    }
 
-        for (Faction faction : Faction.all()) {
-            Home home = faction.getHome();
-            if (home != null) {
-                setHome(faction, home);
-            }
+    @Override
+    public void update(Faction faction, Territory territory) {
+        String level = territory.level();
+        remove(faction.getID(), level);
+        List<GenericMarker> created = new ArrayList<>();
 
-            String info = getInfo(faction);
-            for (Claim claim : FactionsSafe.claims(faction)) {
-                ChunkPos pos = new ChunkPos(claim.x, claim.z);
+        Territory region = territory.region();
+        if (region == null) {
+            addMarkers(faction, territory, created, -1, -1);
+        } else {
+            // the regions while zoomed out, the chunks from the detail zoom on
+            int zoom = FactionsMod.CONFIG.MAPS.DYNMAP_DETAIL_ZOOM;
+            addMarkers(faction, territory, created, zoom, -1);
+            addMarkers(faction, region, created, -1, zoom - 1);
+        }
+
+        markers.put(key(faction.getID(), level), created);
+    }
 
-                AreaMarker marker =
-                        markerSet.createAreaMarker(
-                                claim.getKey(),
-                                info,
-                                true,
-                                dimensionTagToID(claim.level),
-                                new double[] {pos.getStartX(), pos.getEndX() + 1},
-                                new double[] {pos.getStartZ(), pos.getEndZ() + 1},
-                                true);
-                if (marker != null) {
-                    marker.setFillStyle(
-                            marker.getFillOpacity(), faction.getColor().getColorValue());
-                    marker.setLineStyle(0, 0, 0);
-                }
+    // Adds an area marker per cell and the borders, shown between the zoom levels unless -1
+    private void addMarkers(
+            Faction faction,
+            Territory territory,
+            List<GenericMarker> created,
+            int minZoom,
+            int maxZoom) {
+        String level = territory.level();
+        String info = getInfo(faction);
+        String world = dimensionTagToID(level);
+        String prefix = key(faction.getID(), level) + (territory.cellSize() > 1 ? "-region" : "");
+        int blocks = territory.cellSize() * 16;
+        for (Vector2i claim : territory.claims()) {
+            AreaMarker marker =
+                    markerSet.createAreaMarker(
+                            territory.cellSize() > 1
+                                    ? prefix + "-" + claim.getX() + "," + claim.getY()
+                                    : Claim.getKey(claim.getX(), claim.getY(), level),
+                            info,
+                            true,
+                            world,
+                            new double[] {claim.getX() * blocks, (claim.getX() + 1) * blocks},
+                            new double[] {claim.getY() * blocks, (claim.getY() + 1) * blocks},
+                            true);
+            if (marker != null) {
+                marker.setFillStyle(marker.getFillOpacity(), faction.getColor().getColorValue());
+                marker.setLineStyle(0, 0, 0);
+                setZoom(marker, minZoom, maxZoom);
+                created.add(marker);
             }
-            for (Map.Entry<String, Set<Vector2i>> entry :
-                    ClaimGrouper.separateClaimsByLevel(faction).entrySet()) {
-                String level = entry.getKey();
-                for (Map<Vector2i, Vector2i[]> group :
-                        ClaimGrouper.convertClaimsToLineSegmentGroupsWithoutHoles(
-                                entry.getValue())) {
-                    List<List<Vector2i>> outlines =
-                            ClaimGrouper.convertLineSegmentsToOutlines(group);
-                    if (outlines.size() > 1) {
-                        FactionsMod.LOGGER.error(
-                                "The claim chunking algorithm used for dynmap has failed, please"
-                                        + " report this asap.");
-                    }
-                    outlines.getFirst().add(outlines.getFirst().getFirst());
-                    double[] x_coords =
-                            outlines.getFirst().stream()
-                                    .mapToDouble((point) -> (double) point.getX())
-                                    .toArray();
-                    double[] z_coords =
-                            outlines.getFirst().stream()
-                                    .mapToDouble((point) -> (double) point.getY())
-                                    .toArray();
-                    double[] y_coords =
-                            outlines.getFirst().stream().mapToDouble((point) -> 320.0).toArray();
+        }
 
-                    PolyLineMarker marker =
-                            markerSet.createPolyLineMarker(
-                                    UUID.randomUUID().toString(),
-                                    "",
-                                    false,
-                                    dimensionTagToID(level),
-                                    x_coords,
-                                    y_coords,
-                                    z_coords,
-                                    true);
-                    if (marker != null) {
-                        marker.setLineStyle(
-                                marker.getLineWeight(),
-                                marker.getLineOpacity(),
-                                faction.getColor().getColorValue());
-                    }
-                }
+        int index = 0;
+        for (List<Vector2i> border : territory.borders()) {
+            // closed, ending where it starts
+            List<Vector2i> outline = new ArrayList<>(border);
+            outline.add(border.getFirst());
+            double[] x_coords =
+                    outline.stream().mapToDouble((point) -> (double) point.getX()).toArray();
+            double[] z_coords =
+                    outline.stream().mapToDouble((point) -> (double) point.getY()).toArray();
+            double[] y_coords = outline.stream().mapToDouble((point) -> 320.0).toArray();
+
+            PolyLineMarker marker =
+                    markerSet.createPolyLineMarker(
+                            prefix + "-" + index++,
+                            "",
+                            false,
+                            world,
+                            x_coords,
+                            y_coords,
+                            z_coords,
+                            true);
+            if (marker != null) {
+                marker.setLineStyle(
+                        marker.getLineWeight(),
+                        marker.getLineOpacity(),
+                        faction.getColor().getColorValue());
+                setZoom(marker, minZoom, maxZoom);
+                created.add(marker);
             }
         }
     }
 
-    private void updateFaction(Faction faction) {
-        String info = getInfo(faction);
-
-        for (Claim claim : FactionsSafe.claims(faction)) {
-            AreaMarker marker = markerSet.findAreaMarker(claim.getKey());
+    private static void setZoom(GenericMarker marker, int minZoom, int maxZoom) {
+        if (minZoom >= 0) marker.setMinZoom(minZoom);
+        if (maxZoom >= 0) marker.setMaxZoom(maxZoom);
+    }
 
-            marker.setFillStyle(marker.getFillOpacity(), faction.getColor().getColorValue());
-            marker.setLineStyle(
-                    marker.getLineWeight(),
-                    marker.getLineOpacity(),
-                    faction.getColor().getColorValue());
-            marker.setDescription(info);
+    @Override
+    public void remove(UUID faction, String level) {
+        List<GenericMarker> removed = markers.remove(key(faction, level));
+        if (removed != null) {
+            removed.forEach(GenericMarker::deleteMarker);
         }
     }
 
-    private void setHome(Faction faction, Home home) {
+    @Override
+    public void setHome(Faction faction, Home home) {
         Marker marker = markerSet.findMarker(faction.getID().toString() + "-home");
-        if (home == null && marker != null) {
-            marker.deleteMarker();
+        if (home == null) {
+            if (marker != null) marker.deleteMarker();
             return;
         }
 
@@ -246,7 +231,7 @@ public class DynmapWrapper {
                 + faction.getPower()
                 + "<br>"
                 + "Number of members: "
-                + faction.getUsers().size(); // + "<br>"
+                + faction.getUserCount(); // + "<br>"
         // + "Allies: " + Ally.getAllies(faction.getName).stream().map(ally ->
         // ally.target).collect(Collectors.joining(", "));
     }
@@ -256,6 +241,6 @@ public class DynmapWrapper {
         markerSet =
                 markerApi.createMarkerSet(
                         "dynmap-factions", "The Dynmap Factions integration", null, true);
-        generateMarkers();
+        MarkerSync.rebuild(this);
     }
 }
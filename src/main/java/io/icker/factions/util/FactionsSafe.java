@@ -11,7 +11,7 @@ public final class FactionsSafe {
     private FactionsSafe() {}
 
     public static int claimCount(@Nullable Faction f) {
-        return (f == null) ? 0 : f.getClaims().size();
+        return (f == null) ? 0 : f.getClaimCount();
     }
 
     /** Null-safe; returns an empty list when f is null */
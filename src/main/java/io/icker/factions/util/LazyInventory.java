@@ -0,0 +1,60 @@
+package io.icker.factions.util;
+
+import io.icker.factions.database.SerializerRegistry;
+
+import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.nbt.NbtList;
+
+/**
+ * An inventory that stays in its saved NBT form until it is first opened. Decoding item stacks
+ * needs the registry manager and is the costly part of loading a faction, while most safes are
+ * never opened in a session. The NBT is only re-encoded after the opened inventory has changed,
+ * so saving an untouched inventory writes back the list it was loaded from.
+ *
+ * <p>Not thread safe; both the inventory and its NBT belong to the server thread.
+ */
+public class LazyInventory {
+    private final int size;
+    private NbtList data;
+    private SimpleInventory inventory;
+    private boolean modified;
+
+    public LazyInventory(int size) {
+        this(size, new NbtList());
+    }
+
+    public LazyInventory(int size, NbtList data) {
+        this.size = size;
+        this.data = data;
+    }
+
+    /**
+     * Decodes the inventory on first use. {@code onChange} runs whenever it changes afterwards; it
+     * is only registered by the call that decodes it.
+     */
+    public SimpleInventory get(Runnable onChange) {
+        if (inventory == null) {
+            inventory = data.isEmpty()
+                    ? new SimpleInventory(size)
+                    : SerializerRegistry.fromNbtElement(SimpleInventory.class, data);
+            inventory.addListener(changed -> {
+                modified = true;
+                onChange.run();
+            });
+        }
+        return inventory;
+    }
+
+    public boolean isEmpty() {
+        return inventory == null ? data.isEmpty() : inventory.isEmpty();
+    }
+
+    /** The saved form, re-encoded only if the inventory changed since it was last taken. */
+    public NbtList toNbt() {
+        if (modified) {
+            data = (NbtList) SerializerRegistry.toNbtElement(SimpleInventory.class, inventory);
+            modified = false;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,216 @@
+package io.icker.factions.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * An open-addressing hash map from primitive {@code long} keys to non-null values. Lookups do not
+ * box the key or allocate, which matters for the claim lookups done on every block interaction.
+ *
+ * <p>Uses linear probing with backward-shift deletion, so there are no tombstones and the table
+ * never degrades after many removals. Not thread safe.
+ */
+public class LongHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public LongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return the previous value for the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("LongHashMap does not accept null values");
+        }
+
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V old = (V) values[slot];
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > (mask + 1) >> 1) {
+            rehash((mask + 1) << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = find(key);
+        if (slot < 0) return null;
+
+        V old = (V) values[slot];
+        shiftDown(slot);
+        size--;
+        return old;
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /** Grows the table so that {@code expectedSize} entries fit without rehashing. */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if (capacity > mask + 1) {
+            rehash(capacity);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /** Returns a snapshot of the values; later changes to the map are not reflected. */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> out = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                out.add((V) value);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Removes every entry whose value matches the filter.
+     *
+     * @return true if anything was removed
+     */
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super V> filter) {
+        long[] matched = new long[8];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && filter.test((V) values[i])) {
+                if (count == matched.length) {
+                    matched = Arrays.copyOf(matched, count << 1);
+                }
+                matched[count++] = keys[i];
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            remove(matched[i]);
+        }
+        return count > 0;
+    }
+
+    private int find(long key) {
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe chain into the gap so lookups
+    // never need tombstones.
+    private void shiftDown(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) break;
+
+            int ideal = mix(keys[slot]) & mask;
+            boolean staysPut = gap <= slot ? (gap < ideal && ideal <= slot) : (gap < ideal || ideal <= slot);
+            if (!staysPut) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = mix(oldKeys[i]) & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    // Load factor is kept at or below 0.5, so the table holds at least twice the expected size
+    private static int tableSizeFor(int expectedSize) {
+        int needed = Math.max(MIN_CAPACITY, expectedSize << 1);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    // Package-private so tests can pick keys that collide
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+}
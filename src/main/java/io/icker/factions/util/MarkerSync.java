@@ -0,0 +1,348 @@
+package io.icker.factions.util;
+
+import com.flowpowered.math.vector.Vector2i;
+
+import io.icker.factions.FactionsMod;
+import io.icker.factions.api.events.ClaimEvents;
+import io.icker.factions.api.events.FactionEvents;
+import io.icker.factions.api.persistents.Claim;
+import io.icker.factions.api.persistents.Faction;
+import io.icker.factions.api.persistents.Home;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the web maps' markers in step with the factions, sharing one {@link Territory} model
+ * between every map integration. Each (faction, dimension) pair has a version that claim events
+ * move. Once a faction's claims have stayed unchanged for {@code updateDelayTicks}, or it has
+ * waited {@code maxUpdateDelayTicks}, the claims of its changed pairs are copied and their outlines
+ * are computed on a background thread, once however many changes they had and however many maps
+ * are installed. Finished territories are cached and published to the maps on a later tick, unless
+ * the claims changed again in the meantime. Faction details such as the name or color only
+ * restyle the cached territories, after the same delay.
+ *
+ * <p>At most {@code updatesPerTick} outlines are handed to the background thread, and at most as
+ * many factions' markers replaced, each tick, so a large faction disbanding or an autoclaiming
+ * player is spread over several ticks; the rest waits its turn in order.
+ *
+ * <p>Large territories can also get a coarser outline of the regions they cover, which the maps
+ * show when zoomed out; see {@link Territory#region()}.
+ *
+ * <p>A map rebuilds its markers when it becomes available and on {@code /f admin reload}; both
+ * reuse the cache. Everything but the outline computation runs on the server thread.
+ */
+public final class MarkerSync {
+    /** A web map integration, which owns the markers. */
+    public interface Target {
+        /** Removes every claim marker, before a rebuild. */
+        void clear();
+
+        /** Replaces the faction's claim markers in the territory's dimension. */
+        void update(Faction faction, Territory territory);
+
+        /** Removes the faction's claim markers in this dimension. */
+        void remove(UUID faction, String level);
+
+        /** Moves the faction's home marker, or removes it if {@code home} is null. */
+        void setHome(Faction faction, Home home);
+    }
+
+    private record Key(UUID faction, String level) {}
+
+    // What changed about a faction since its markers were last updated, and when. Whatever the
+    // budget didn't reach stays here for the next tick.
+    private static class Change {
+        final LinkedHashSet<String> levels = new LinkedHashSet<>();
+        boolean restyle;
+        // cached territories still to be restyled, once the restyle is under way
+        final LinkedHashSet<String> restyles = new LinkedHashSet<>();
+        final long first;
+        long last;
+
+        Change(long now) {
+            first = now;
+            last = now;
+        }
+    }
+
+    // package-private so tests can hold back the outlines
+    static final ExecutorService WORKER =
+            Executors.newSingleThreadExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "Factions Map Outlines");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+    private static final ConcurrentLinkedQueue<Territory> RESULTS = new ConcurrentLinkedQueue<>();
+    // maps that asked for a rebuild, possibly from their own threads
+    private static final ConcurrentLinkedQueue<Target> REBUILDS = new ConcurrentLinkedQueue<>();
+
+    private static final List<Target> TARGETS = new ArrayList<>();
+    // the version of the latest claims handed to the worker for each pair
+    private static final HashMap<Key, Long> VERSIONS = new HashMap<>();
+    private static final HashMap<Key, Territory> TERRITORIES = new HashMap<>();
+    // dimensions of each faction's cached territories
+    private static final HashMap<UUID, Set<String>> LEVELS = new HashMap<>();
+    private static final LinkedHashMap<UUID, Change> CHANGES = new LinkedHashMap<>();
+    private static final AtomicInteger COMPUTING = new AtomicInteger();
+    private static long nextVersion;
+    private static long now;
+    private static boolean started;
+
+    static {
+        ClaimEvents.ADD.register(
+                claim -> {
+                    if (claim.factionID != null) mark(claim.factionID, claim.level);
+                });
+        ClaimEvents.REMOVE.register(
+                (x, z, level, faction) -> {
+                    if (faction != null) mark(faction.getID(), level);
+                });
+
+        FactionEvents.MODIFY.register(MarkerSync::restyle);
+        FactionEvents.MEMBER_JOIN.register((faction, user) -> restyle(faction));
+        FactionEvents.MEMBER_LEAVE.register((faction, user) -> restyle(faction));
+        FactionEvents.POWER_CHANGE.register((faction, oldPower) -> restyle(faction));
+        FactionEvents.SET_HOME.register(
+                (faction, home) -> TARGETS.forEach(target -> target.setHome(faction, home)));
+        FactionEvents.DISBAND.register(
+                faction -> {
+                    TARGETS.forEach(target -> target.setHome(faction, null));
+                    for (String level : LEVELS.getOrDefault(faction.getID(), Set.of())) {
+                        mark(faction.getID(), level);
+                    }
+                });
+
+        ServerTickEvents.END_SERVER_TICK.register(
+                server -> {
+                    if (WorldUtils.isReady() && WorldUtils.hasWorlds()) tick(server.getTicks());
+                });
+    }
+
+    private MarkerSync() {}
+
+    /**
+     * Removes the map's markers and adds them again from the cached territories, on the next tick
+     * once the worlds are loaded. Safe from any thread.
+     */
+    public static void rebuild(Target target) {
+        REBUILDS.add(target);
+    }
+
+    /** Factions whose markers wait for their claims to settle or for their turn. */
+    public static int getWaiting() {
+        return CHANGES.size();
+    }
+
+    /** Outlines being computed in the background. */
+    public static int getComputing() {
+        return COMPUTING.get();
+    }
+
+    /** Computed outlines waiting to be handed to the maps. */
+    public static int getPublishing() {
+        return RESULTS.size();
+    }
+
+    /** The faction's published territories, one per dimension. */
+    public static List<Territory> getTerritories(UUID faction) {
+        List<Territory> territories = new ArrayList<>();
+        for (String level : LEVELS.getOrDefault(faction, Set.of())) {
+            territories.add(TERRITORIES.get(new Key(faction, level)));
+        }
+        return territories;
+    }
+
+    // For tests: forgets every map, territory and change, as if no map had appeared yet
+    static void reset() {
+        REBUILDS.clear();
+        RESULTS.clear();
+        TARGETS.clear();
+        VERSIONS.clear();
+        TERRITORIES.clear();
+        LEVELS.clear();
+        CHANGES.clear();
+        started = false;
+    }
+
+    private static Change change(UUID faction) {
+        Change change = CHANGES.computeIfAbsent(faction, id -> new Change(now));
+        change.last = now;
+        return change;
+    }
+
+    private static void mark(UUID faction, String level) {
+        if (started) change(faction).levels.add(level);
+    }
+
+    private static void restyle(Faction faction) {
+        if (started) change(faction.getID()).restyle = true;
+    }
+
+    // Runs once the worlds are loaded; package-private so tests can tick without a server
+    static void tick(long ticks) {
+        now = ticks;
+
+        Target target;
+        while ((target = REBUILDS.poll()) != null) {
+            rebuildNow(target);
+        }
+        if (!started) return;
+
+        publish();
+        submit();
+    }
+
+    private static void rebuildNow(Target target) {
+        if (!started) {
+            // the first map to appear has every territory computed
+            started = true;
+            for (Faction faction : Faction.all()) {
+                for (Claim claim : FactionsSafe.claims(faction)) {
+                    mark(faction.getID(), claim.level);
+                }
+            }
+        }
+
+        target.clear();
+        TARGETS.remove(target);
+        TARGETS.add(target);
+
+        for (Faction faction : Faction.all()) {
+            Home home = faction.getHome();
+            if (home != null) {
+                target.setHome(faction, home);
+            }
+
+            for (String level : LEVELS.getOrDefault(faction.getID(), Set.of())) {
+                target.update(faction, TERRITORIES.get(new Key(faction.getID(), level)));
+            }
+        }
+    }
+
+    // Hands a copy of the changed claims of each settled faction to the worker, within the budget
+    private static void submit() {
+        int delay = FactionsMod.CONFIG.MAPS.UPDATE_DELAY_TICKS;
+        int maxDelay = FactionsMod.CONFIG.MAPS.MAX_UPDATE_DELAY_TICKS;
+        int budget = FactionsMod.CONFIG.MAPS.UPDATES_PER_TICK;
+
+        Iterator<Map.Entry<UUID, Change>> changes = CHANGES.entrySet().iterator();
+        while (budget > 0 && changes.hasNext()) {
+            Map.Entry<UUID, Change> entry = changes.next();
+            UUID id = entry.getKey();
+            Change change = entry.getValue();
+            if (now - change.last < delay && now - change.first < maxDelay) continue;
+
+            Faction faction = Faction.get(id);
+            if (change.restyle) {
+                change.restyle = false;
+                if (faction != null) {
+                    // the recomputed ones are published with the new details anyway
+                    for (String level : LEVELS.getOrDefault(id, Set.of())) {
+                        if (!change.levels.contains(level)) change.restyles.add(level);
+                    }
+                }
+            }
+
+            // claims are grouped once per faction, however many of its dimensions changed
+            Map<String, Set<Vector2i>> claims =
+                    faction == null || change.levels.isEmpty()
+                            ? Map.of()
+                            : ClaimGrouper.separateClaimsByLevel(faction);
+            Iterator<String> levels = change.levels.iterator();
+            while (budget > 0 && levels.hasNext()) {
+                String level = levels.next();
+                levels.remove();
+                change.restyles.remove(level);
+                Key key = new Key(id, level);
+                Set<Vector2i> points = claims.get(level);
+                if (points == null) {
+                    remove(key);
+                    continue;
+                }
+
+                long version = ++nextVersion;
+                VERSIONS.put(key, version);
+                Set<Vector2i> snapshot = Set.copyOf(points);
+                COMPUTING.incrementAndGet();
+                WORKER.execute(
+                        () -> {
+                            try {
+                                RESULTS.add(Territory.compute(id, level, version, snapshot));
+                            } catch (RuntimeException e) {
+                                FactionsMod.LOGGER.error(
+                                        "Failed to compute the outline of {} in {}", id, level, e);
+                            } finally {
+                                COMPUTING.decrementAndGet();
+                            }
+                        });
+                budget--;
+            }
+
+            Iterator<String> restyles = change.restyles.iterator();
+            while (budget > 0 && restyles.hasNext()) {
+                String level = restyles.next();
+                restyles.remove();
+                Territory territory = TERRITORIES.get(new Key(id, level));
+                if (faction == null || territory == null) continue;
+                TARGETS.forEach(target -> target.update(faction, territory));
+                budget--;
+            }
+
+            if (change.levels.isEmpty() && change.restyles.isEmpty()) {
+                changes.remove();
+            }
+        }
+    }
+
+    // Caches and hands out the finished territories whose claims haven't changed since
+    private static void publish() {
+        int budget = FactionsMod.CONFIG.MAPS.UPDATES_PER_TICK;
+        Territory territory;
+        while (budget > 0 && (territory = RESULTS.poll()) != null) {
+            Key key = new Key(territory.faction(), territory.level());
+            Long version = VERSIONS.get(key);
+            if (version == null || version != territory.version()) continue;
+
+            Faction faction = Faction.get(territory.faction());
+            if (faction == null) continue;
+
+            TERRITORIES.put(key, territory);
+            LEVELS.computeIfAbsent(key.faction(), id -> new HashSet<>()).add(key.level());
+            for (Target target : TARGETS) {
+                target.update(faction, territory);
+            }
+            budget--;
+        }
+    }
+
+    private static void remove(Key key) {
+        // drops any territory still being computed for it
+        VERSIONS.remove(key);
+        if (TERRITORIES.remove(key) == null) return;
+
+        Set<String> levels = LEVELS.get(key.faction());
+        if (levels != null) {
+            levels.remove(key.level());
+            if (levels.isEmpty()) LEVELS.remove(key.faction());
+        }
+        for (Target target : TARGETS) {
+            target.remove(key.faction(), key.level());
+        }
+    }
+}
@@ -78,7 +78,7 @@ public class Message {
 
     public Message send(Faction faction) {
         Message message = this.prependFaction(faction);
-        for (User member : faction.getUsers()) {
+        for (User member : User.getOnlineByFaction(faction.getID())) {
             ServerPlayerEntity player = manager.getPlayer(member.getID());
             if (player != null) message.send(player, false);
         }
@@ -93,9 +93,9 @@ public class Message {
     }
 
     public void sendToFactionChat(Faction faction) {
-        for (User member : faction.getUsers()) {
+        for (User member : User.getOnlineByFaction(faction.getID())) {
             ServerPlayerEntity player = manager.getPlayer(member.getID());
-            player.sendMessage(text, false);
+            if (player != null) player.sendMessage(text, false);
         }
     }
 
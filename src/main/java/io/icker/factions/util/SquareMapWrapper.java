@@ -2,9 +2,6 @@ package io.icker.factions.util;
 
 import com.flowpowered.math.vector.Vector2i;
 
-import io.icker.factions.api.events.ClaimEvents;
-import io.icker.factions.api.events.FactionEvents;
-import io.icker.factions.api.persistents.Claim;
 import io.icker.factions.api.persistents.Faction;
 import io.icker.factions.api.persistents.Home;
 
@@ -25,112 +22,110 @@ import java.awt.Color;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
-public class SquareMapWrapper {
+public class SquareMapWrapper implements MarkerSync.Target {
     private HashMap<String, SimpleLayerProvider> layers = new HashMap<>();
+    // number of outline markers by faction and dimension, see key()
+    private final HashMap<String, Integer> markers = new HashMap<>();
     private Squaremap api;
 
     public SquareMapWrapper() {
-        ClaimEvents.ADD.register(
-                (Claim claim) -> {
-                    generateMarkers();
-                });
-        ClaimEvents.REMOVE.register(
-                (x, z, level, faction) -> {
-                    generateMarkers();
-                });
-
         ServerLifecycleEvents.SERVER_STARTED.register(
                 (server) -> {
                     this.api = SquaremapProvider.get();
 
-                    generateMarkers();
+                    MarkerSync.rebuild(this);
                 });
+    }
+
+    // squaremap keys can't contain the colon of a dimension id
+    private static String key(UUID faction, String level) {
+        return faction + "-" + level.replace(':', '-');
+    }
+
+    private SimpleLayerProvider layer(String level) {
+        SimpleLayerProvider layer = layers.get(level);
+
+        if (layer == null) {
+            layer = SimpleLayerProvider.builder("factions-" + level).showControls(true).build();
+
+            MapWorld world = api.getWorldIfEnabled(WorldIdentifier.parse(level)).orElse(null);
+            if (world != null) {
+                world.layerRegistry()
+                        .register(Key.of("factions-" + level.replace(':', '-')), layer);
+            }
 
-        FactionEvents.SET_HOME.register(this::setHome);
-        FactionEvents.MODIFY.register(faction -> generateMarkers());
-        FactionEvents.MEMBER_JOIN.register((faction, user) -> generateMarkers());
-        FactionEvents.MEMBER_LEAVE.register((faction, user) -> generateMarkers());
-        FactionEvents.POWER_CHANGE.register((faction, oldPower) -> generateMarkers());
-        FactionEvents.DISBAND.register((faction) -> generateMarkers());
+            layers.put(level, layer);
+        }
+        return layer;
     }
 
-    private void generateMarkers() {
+    @Override
+    public void clear() {
         for (SimpleLayerProvider layer : layers.values()) {
-            for (Key id : layer.registeredMarkers().keySet()) {
+            for (Key id : List.copyOf(layer.registeredMarkers().keySet())) {
                 layer.removeMarker(id);
             }
         }
+        markers.clear();
+    }
 
-        for (Faction faction : Faction.all()) {
-            Home home = faction.getHome();
-            if (home != null) {
-                setHome(faction, home);
-            }
+    @Override
+    public void update(Faction faction, Territory territory) {
+        String level = territory.level();
+        remove(faction.getID(), level);
+
+        String info = getInfo(faction);
+        SimpleLayerProvider layer = layer(level);
+        // markers can't depend on the zoom here, so large territories are always drawn coarser
+        Territory shape = territory.region() != null ? territory.region() : territory;
+        int index = 0;
+        for (List<List<Vector2i>> outlines : shape.polygons()) {
+            List<List<Point>> points =
+                    outlines.stream()
+                            .map(
+                                    (hole) ->
+                                            hole.stream()
+                                                    .map(
+                                                            (point) ->
+                                                                    Point.of(
+                                                                            point.getX(),
+                                                                            point.getY()))
+                                                    .collect(Collectors.toList()))
+                            .collect(Collectors.toList());
+
+            Marker marker =
+                    Marker.polygon(points.removeFirst(), points)
+                            .markerOptions(
+                                    MarkerOptions.builder()
+                                            .fillColor(
+                                                    new Color(faction.getColor().getColorValue()))
+                                            .strokeColor(
+                                                    new Color(faction.getColor().getColorValue()))
+                                            .hoverTooltip(faction.getName())
+                                            .clickTooltip(info));
+
+            layer.addMarker(Key.of(key(faction.getID(), level) + "-" + index++), marker);
+        }
 
-            String info = getInfo(faction);
-            for (Map.Entry<String, Set<Vector2i>> entry :
-                    ClaimGrouper.separateClaimsByLevel(faction).entrySet()) {
-                String level = entry.getKey();
-                for (Map<Vector2i, Vector2i[]> group :
-                        ClaimGrouper.convertClaimsToLineSegmentGroups(entry.getValue())) {
-                    List<List<Vector2i>> outlines =
-                            ClaimGrouper.convertLineSegmentsToOutlines(group);
-                    List<List<Point>> points =
-                            outlines.stream()
-                                    .map(
-                                            (hole) ->
-                                                    hole.stream()
-                                                            .map(
-                                                                    (point) ->
-                                                                            Point.of(
-                                                                                    point.getX(),
-                                                                                    point.getY()))
-                                                            .collect(Collectors.toList()))
-                                    .collect(Collectors.toList());
-
-                    SimpleLayerProvider layer = layers.get(level);
-                    if (layer == null) {
-                        layer =
-                                SimpleLayerProvider.builder("factions-" + level)
-                                        .showControls(true)
-                                        .build();
-
-                        MapWorld world =
-                                api.getWorldIfEnabled(WorldIdentifier.parse(level)).orElse(null);
-                        if (world != null) {
-                            world.layerRegistry()
-                                    .register(Key.of("factions-" + level.replace(':', '-')), layer);
-                        }
-
-                        layers.put(level, layer);
-                    }
-
-                    Marker marker =
-                            Marker.polygon(points.removeFirst(), points)
-                                    .markerOptions(
-                                            MarkerOptions.builder()
-                                                    .fillColor(
-                                                            new Color(
-                                                                    faction.getColor()
-                                                                            .getColorValue()))
-                                                    .strokeColor(
-                                                            new Color(
-                                                                    faction.getColor()
-                                                                            .getColorValue()))
-                                                    .hoverTooltip(faction.getName())
-                                                    .clickTooltip(info));
-
-                    layer.addMarker(Key.of(UUID.randomUUID().toString()), marker);
-                }
-            }
+        markers.put(key(faction.getID(), level), index);
+    }
+
+    @Override
+    public void remove(UUID faction, String level) {
+        Integer count = markers.remove(key(faction, level));
+        SimpleLayerProvider layer = layers.get(level);
+        if (count == null || layer == null) return;
+
+        for (int i = 0; i < count; i++) {
+            layer.removeMarker(Key.of(key(faction, level) + "-" + i));
         }
     }
 
-    private void setHome(Faction faction, Home home) {
+    @Override
+    public void setHome(Faction faction, Home home) {
         if (home == null) {
             for (Map.Entry<String, SimpleLayerProvider> entry : layers.entrySet()) {
                 entry.getValue().removeMarker(Key.of(faction.getID().toString() + "-home"));
@@ -138,23 +133,7 @@ public class SquareMapWrapper {
             return;
         }
 
-        SimpleLayerProvider layer = layers.get(home.level);
-
-        if (layer == null) {
-            layer =
-                    SimpleLayerProvider.builder("factions-" + home.level)
-                            .showControls(true)
-                            .build();
-
-            MapWorld world = api.getWorldIfEnabled(WorldIdentifier.parse(home.level)).orElse(null);
-            if (world != null) {
-                world.layerRegistry()
-                        .register(Key.of("factions-" + home.level.replace(':', '-')), layer);
-            } else {
-            }
-
-            layers.put(home.level, layer);
-        }
+        SimpleLayerProvider layer = layer(home.level);
 
         for (Map.Entry<String, SimpleLayerProvider> entry : layers.entrySet()) {
             if (entry.getKey().equals(home.level)) {
@@ -190,7 +169,7 @@ public class SquareMapWrapper {
                 + faction.getPower()
                 + "<br>"
                 + "Number of members: "
-                + faction.getUsers().size(); // + "<br>"
+                + faction.getUserCount(); // + "<br>"
         // + "Allies: " + Ally.getAllies(faction.getName).stream().map(ally ->
         // ally.target).collect(Collectors.joining(", "));
     }
@@ -0,0 +1,88 @@
+package io.icker.factions.util;
+
+import com.flowpowered.math.vector.Vector2i;
+
+import io.icker.factions.FactionsMod;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The shape of a faction's claims in one dimension, computed once for every map integration. The
+ * lists are immutable and shared between them.
+ *
+ * @param version the {@link MarkerSync} version of the claims this was computed from
+ * @param cellSize chunks along each side of a cell in {@code claims}, 1 unless this is a region
+ *     outline
+ * @param claims the claimed cells
+ * @param polygons one entry per connected group of claims: its outline, followed by its holes
+ * @param borders the outline of every group with its holes filled, for maps that only draw lines
+ * @param edges chunk edges along the outlines, the corners they would have without merging
+ * @param vertices corners of the polygons
+ * @param region the coarser outline of the regions holding a claim, for maps zoomed out, or null
+ */
+public record Territory(
+        UUID faction,
+        String level,
+        long version,
+        int cellSize,
+        Set<Vector2i> claims,
+        List<List<List<Vector2i>>> polygons,
+        List<List<Vector2i>> borders,
+        int edges,
+        int vertices,
+        Territory region) {
+
+    /**
+     * Traces the claims with {@link ClaimTracer}; safe from any thread, as it only reads them. With
+     * {@code regionOutlineChunks} set, outlines of at least {@code regionOutlineMinVertices}
+     * corners also get a region outline.
+     */
+    static Territory compute(UUID faction, String level, long version, Set<Vector2i> claims) {
+        ClaimTracer tracer = new ClaimTracer(claims);
+        int size = FactionsMod.CONFIG.MAPS.REGION_OUTLINE_CHUNKS;
+        Territory region = null;
+        if (size > 1
+                && tracer.getVertices() >= FactionsMod.CONFIG.MAPS.REGION_OUTLINE_MIN_VERTICES) {
+            region = computeRegion(faction, level, version, claims, size);
+        }
+
+        return new Territory(
+                faction,
+                level,
+                version,
+                1,
+                claims,
+                List.copyOf(tracer.getOutlines()),
+                List.copyOf(tracer.getBorders()),
+                tracer.getEdges(),
+                tracer.getVertices(),
+                region);
+    }
+
+    // A region counts as claimed if any of its chunks is, so small gaps are filled in
+    private static Territory computeRegion(
+            UUID faction, String level, long version, Set<Vector2i> claims, int size) {
+        Set<Vector2i> regions = new HashSet<>();
+        for (Vector2i claim : claims) {
+            regions.add(
+                    new Vector2i(
+                            Math.floorDiv(claim.getX(), size), Math.floorDiv(claim.getY(), size)));
+        }
+
+        ClaimTracer tracer = new ClaimTracer(regions, size * 16);
+        return new Territory(
+                faction,
+                level,
+                version,
+                size,
+                Set.copyOf(regions),
+                List.copyOf(tracer.getOutlines()),
+                List.copyOf(tracer.getBorders()),
+                tracer.getEdges(),
+                tracer.getVertices(),
+                null);
+    }
+}
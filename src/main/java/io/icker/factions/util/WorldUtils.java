@@ -3,17 +3,11 @@ package io.icker.factions.util;
 import net.fabricmc.fabric.api.event.Event;
 import net.fabricmc.fabric.api.event.EventFactory;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
-import net.minecraft.registry.RegistryKey;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.world.ServerWorld;
-import net.minecraft.util.Identifier;
-import net.minecraft.world.World;
 
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Objects;
-import java.util.Optional;
-
 public class WorldUtils {
     public static MinecraftServer server;
 
@@ -28,6 +22,7 @@ public class WorldUtils {
                             });
 
     public static void register() {
+        DimensionRegistry.register();
         ServerLifecycleEvents.SERVER_STARTING.register(
                 (server1) -> {
                     WorldUtils.server = server1;
@@ -44,22 +39,12 @@ public class WorldUtils {
     }
 
     public static boolean isValid(String level) {
-        return WorldUtils.server.getWorldRegistryKeys().stream()
-                .anyMatch(key -> Objects.equals(key.getValue(), Identifier.of(level)));
+        return DimensionRegistry.isLoaded(DimensionRegistry.find(level));
     }
 
     @Nullable
     public static ServerWorld getWorld(String level) {
-        Optional<RegistryKey<World>> key =
-                WorldUtils.server.getWorldRegistryKeys().stream()
-                        .filter(testKey -> Objects.equals(testKey.getValue(), Identifier.of(level)))
-                        .findAny();
-
-        if (key.isEmpty()) {
-            return null;
-        } else {
-            return server.getWorld(key.get());
-        }
+        return DimensionRegistry.getWorld(DimensionRegistry.find(level));
     }
 
     @FunctionalInterface
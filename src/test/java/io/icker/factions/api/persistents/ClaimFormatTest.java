@@ -0,0 +1,230 @@
+package io.icker.factions.api.persistents;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.icker.factions.api.persistents.User.Rank;
+import io.icker.factions.database.Database;
+import io.icker.factions.database.SerializerRegistry;
+import io.icker.factions.database.TestDatabase;
+import io.icker.factions.util.ChunkKey;
+
+import net.minecraft.nbt.NbtByteArray;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtInt;
+import net.minecraft.nbt.NbtIntArray;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtLong;
+import net.minecraft.nbt.NbtLongArray;
+import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.nbt.NbtString;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Checks the {@link ClaimFormat} layout of claim.dat: claims come back exactly as written, the
+ * columns are encoded as documented, and a claim.dat in the old one-compound-per-claim layout is
+ * rewritten in this format the first time it is loaded, with the original kept beside it.
+ */
+class ClaimFormatTest {
+    private static final String OVERWORLD = "minecraft:overworld";
+    private static final String NETHER = "minecraft:the_nether";
+    private static final long BASE = 1_700_000_000_000L;
+
+    private static final UUID RED = new UUID(1, 1);
+    private static final UUID BLUE = new UUID(2, 2);
+    private static final UUID ALICE = new UUID(3, 3);
+    private static final UUID BOB = new UUID(4, 4);
+
+    @TempDir Path dir;
+
+    @Test
+    void roundTrip() throws IOException {
+        ClaimFormat format = new ClaimFormat();
+        List<Claim> read = format.read(format.write(sample()), 1);
+        assertEquals(sample().size(), read.size());
+        assertEquals(describe(sample()), describe(read));
+    }
+
+    @Test
+    void columns() {
+        NbtCompound root = new ClaimFormat().write(sample());
+
+        // each rank once, in order of first use; claims without one get no entry
+        NbtList accessLevels = (NbtList) root.get("AccessLevels");
+        List<Rank> dictionary = new ArrayList<>();
+        for (int i = 0; i < accessLevels.size(); i++) {
+            dictionary.add(SerializerRegistry.fromNbtElement(Rank.class, accessLevels.get(i)));
+        }
+        assertEquals(List.of(Rank.OWNER, Rank.MEMBER, Rank.LEADER), dictionary);
+
+        NbtList groups = (NbtList) root.get("Groups");
+        assertEquals(4, groups.size());
+
+        // sorted by creation, which is stored as the difference from the claim before
+        NbtCompound red = (NbtCompound) groups.get(0);
+        assertEquals(OVERWORLD, SerializerRegistry.fromNbtElement(String.class, red.get("Level")));
+        assertEquals(RED, SerializerRegistry.fromNbtElement(UUID.class, red.get("Faction")));
+        assertArrayEquals(
+                new long[] {
+                    ChunkKey.pack(-1_875_000, 1_875_000), ChunkKey.pack(0, 0), ChunkKey.pack(-1, -1)
+                },
+                ((NbtLongArray) red.get("Chunks")).getLongArray());
+        assertArrayEquals(new byte[] {0, 1, -1}, ((NbtByteArray) red.get("Access")).getByteArray());
+        assertArrayEquals(
+                new long[] {BASE + 1_000, 1_000, 1_000},
+                ((NbtLongArray) red.get("Created")).getLongArray());
+        assertArrayEquals(new int[] {0}, ((NbtIntArray) red.get("PermittedAt")).getIntArray());
+        NbtList permitted = (NbtList) red.get("Permitted");
+        assertEquals(1, permitted.size());
+        assertEquals(2, ((NbtList) permitted.get(0)).size());
+
+        // no side table when nobody has grants
+        NbtCompound nether = (NbtCompound) groups.get(1);
+        assertEquals(NETHER, SerializerRegistry.fromNbtElement(String.class, nether.get("Level")));
+        assertFalse(nether.contains("PermittedAt"));
+        assertFalse(nether.contains("Permitted"));
+
+        NbtCompound orphan = (NbtCompound) groups.get(3);
+        assertFalse(orphan.contains("Level"));
+        assertFalse(orphan.contains("Faction"));
+        assertArrayEquals(new byte[] {-1}, ((NbtByteArray) orphan.get("Access")).getByteArray());
+    }
+
+    @Test
+    void rejectsColumnsOfDifferentLength() {
+        ClaimFormat format = new ClaimFormat();
+        NbtCompound root = format.write(sample());
+        NbtCompound group = (NbtCompound) ((NbtList) root.get("Groups")).get(0);
+        group.put("Access", new NbtByteArray(new byte[] {0}));
+
+        assertThrows(IOException.class, () -> format.read(root, 1));
+    }
+
+    @Test
+    void migratesOldClaimDat() throws IOException {
+        NbtList list = new NbtList();
+        for (Claim claim : sample()) {
+            list.add(oldLayout(claim));
+        }
+        NbtCompound old = new NbtCompound();
+        old.put("CORE", list);
+        Path file = dir.resolve("claim.dat");
+        NbtIo.writeCompressed(old, file);
+        byte[] original = Files.readAllBytes(file);
+
+        Database.registerFormat(Claim.class, new ClaimFormat());
+        assertEquals(describe(sample()), load());
+
+        Path legacy = dir.resolve("claim.dat.legacy");
+        assertArrayEquals(original, Files.readAllBytes(legacy));
+        NbtCompound root = NbtIo.readCompressed(file, NbtSizeTracker.ofUnlimitedBytes());
+        assertFalse(root.contains("CORE"));
+        assertEquals(1, ((NbtInt) root.get("Version")).intValue());
+
+        // read in the new layout this time, so not migrated again
+        assertEquals(describe(sample()), load());
+        assertArrayEquals(original, Files.readAllBytes(legacy));
+    }
+
+    // Four groups: two factions in the overworld, one of them in the nether too, and a claim with
+    // neither level nor faction. Listed out of creation order.
+    private static List<Claim> sample() {
+        return new ArrayList<>(
+                List.of(
+                        claim(0, 0, OVERWORLD, RED, Rank.MEMBER, BASE + 2_000),
+                        claim(5, -7, NETHER, RED, Rank.MEMBER, BASE + 500),
+                        claim(-1, -1, OVERWORLD, RED, null, BASE + 3_000),
+                        claim(3, 4, OVERWORLD, BLUE, Rank.LEADER, BASE + 4_000, ALICE),
+                        claim(
+                                -1_875_000,
+                                1_875_000,
+                                OVERWORLD,
+                                RED,
+                                Rank.OWNER,
+                                BASE + 1_000,
+                                ALICE,
+                                BOB),
+                        claim(8, 8, null, null, null, 0)));
+    }
+
+    private static Claim claim(
+            int x,
+            int z,
+            String level,
+            UUID factionID,
+            Rank accessLevel,
+            long created,
+            UUID... permitted) {
+        Claim claim = new Claim();
+        claim.x = x;
+        claim.z = z;
+        claim.level = level;
+        claim.factionID = factionID;
+        claim.accessLevel = accessLevel;
+        claim.created = created;
+        claim.permittedPlayers.addAll(List.of(permitted));
+        return claim;
+    }
+
+    // A claim as claim.dat stored it before ClaimFormat, one compound of its fields
+    private static NbtCompound oldLayout(Claim claim) {
+        NbtCompound compound = new NbtCompound();
+        compound.put("X", NbtInt.of(claim.x));
+        compound.put("Z", NbtInt.of(claim.z));
+        if (claim.level != null) compound.put("Level", NbtString.of(claim.level));
+        if (claim.factionID != null) {
+            compound.put("FactionID", SerializerRegistry.toNbtElement(UUID.class, claim.factionID));
+        }
+        if (claim.accessLevel != null) {
+            compound.put(
+                    "AccessLevel", SerializerRegistry.toNbtElement(Rank.class, claim.accessLevel));
+        }
+        compound.put("Created", NbtLong.of(claim.created));
+        NbtList players = new NbtList();
+        claim.permittedPlayers.forEach(
+                player -> players.add(SerializerRegistry.toNbtElement(UUID.class, player)));
+        compound.put("PermittedPlayers", players);
+        return compound;
+    }
+
+    private Set<String> load() {
+        TestDatabase.useNbt(dir.toFile());
+        try {
+            return describe(Database.loadItems(Claim.class, Claim::getKey));
+        } finally {
+            TestDatabase.close();
+        }
+    }
+
+    private static Set<String> describe(Collection<Claim> claims) {
+        Set<String> described = new HashSet<>();
+        for (Claim claim : claims) {
+            described.add(
+                    claim.getKey()
+                            + " "
+                            + claim.factionID
+                            + " "
+                            + claim.accessLevel
+                            + " "
+                            + claim.created
+                            + " "
+                            + claim.permittedPlayers);
+        }
+        return described;
+    }
+}
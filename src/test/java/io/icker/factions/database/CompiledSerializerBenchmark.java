@@ -0,0 +1,200 @@
+package io.icker.factions.database;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Times saving and loading a store through {@link CompiledSerializer} against the reflective field
+ * walk {@link Database} did for every object before it. Goes through {@link SerializerRegistry}
+ * directly, as {@link Database} needs a running game. Run with {@code ./gradlew
+ * benchmarkCompiledSerializer}, optionally passing {@code --args="<items>"}. The first rounds warm
+ * up the JIT; compare the later ones.
+ */
+public final class CompiledSerializerBenchmark {
+    private static final int ROUNDS = 5;
+
+    private CompiledSerializerBenchmark() {}
+
+    // Shaped like a faction: scalar fields and a list of nested items
+    static class Sample {
+        @Field("Name")
+        String name;
+
+        @Field("X")
+        int x;
+
+        @Field("Z")
+        int z;
+
+        @Field("Created")
+        long created;
+
+        @Field("Power")
+        double power;
+
+        @Field("Open")
+        boolean open;
+
+        @Field("Members")
+        List<Member> members;
+    }
+
+    static class Member {
+        @Field("Name")
+        String name;
+
+        @Field("Rank")
+        int rank;
+    }
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        Random random = new Random(1);
+        List<Sample> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Sample sample = new Sample();
+            sample.name = "faction" + i;
+            sample.x = random.nextInt(2000) - 1000;
+            sample.z = random.nextInt(2000) - 1000;
+            sample.created = random.nextLong();
+            sample.power = random.nextDouble() * 100;
+            sample.open = random.nextBoolean();
+            sample.members = new ArrayList<>();
+            for (int j = random.nextInt(5); j >= 0; j--) {
+                Member member = new Member();
+                member.name = "player" + random.nextInt(10_000);
+                member.rank = random.nextInt(4);
+                sample.members.add(member);
+            }
+            items.add(sample);
+        }
+
+        CompiledSerializer.register(Sample.class);
+        Function<Object, NbtElement> serializer = SerializerRegistry.serializer(Sample.class);
+        Function<NbtElement, Object> deserializer = SerializerRegistry.deserializer(Sample.class);
+        Reflective reflective = new Reflective();
+        reflective.setup(Sample.class);
+        if (!reflective.serialize(Sample.class, items.get(0))
+                .equals(serializer.apply(items.get(0)))) {
+            throw new IllegalStateException("Serializers disagree");
+        }
+        System.out.printf("%d items%n", count);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<NbtElement> saved = new ArrayList<>(count);
+            for (Sample item : items) {
+                saved.add(reflective.serialize(Sample.class, item));
+            }
+            long saving = System.nanoTime();
+            int loaded = 0;
+            for (NbtElement value : saved) {
+                if (reflective.deserialize(Sample.class, value) != null) loaded++;
+            }
+            long reflected = System.nanoTime();
+
+            saved.clear();
+            for (Sample item : items) {
+                saved.add(serializer.apply(item));
+            }
+            long compiling = System.nanoTime();
+            for (NbtElement value : saved) {
+                if (deserializer.apply(value) != null) loaded++;
+            }
+            long end = System.nanoTime();
+
+            System.out.printf(
+                    "reflection save %d ms, load %d ms; compiled save %d ms, load %d ms (%d"
+                            + " loaded)%n",
+                    TimeUnit.NANOSECONDS.toMillis(saving - start),
+                    TimeUnit.NANOSECONDS.toMillis(reflected - saving),
+                    TimeUnit.NANOSECONDS.toMillis(compiling - reflected),
+                    TimeUnit.NANOSECONDS.toMillis(end - compiling),
+                    loaded);
+        }
+    }
+
+    // The per-object field walk Database used before CompiledSerializer
+    private static final class Reflective {
+        private final Map<Class<?>, Map<String, java.lang.reflect.Field>> cache = new HashMap<>();
+
+        void setup(Class<?> clazz) {
+            Map<String, java.lang.reflect.Field> fields = new HashMap<>();
+            for (java.lang.reflect.Field field : clazz.getDeclaredFields()) {
+                Field annotation = field.getAnnotation(Field.class);
+                if (annotation == null) continue;
+
+                field.setAccessible(true);
+                fields.put(annotation.value(), field);
+                if (List.class.isAssignableFrom(field.getType())) {
+                    Class<?> element = element(field);
+                    if (!SerializerRegistry.contains(element)) setup(element);
+                }
+            }
+            cache.put(clazz, fields);
+        }
+
+        NbtElement serialize(Class<?> clazz, Object item) throws ReflectiveOperationException {
+            Map<String, java.lang.reflect.Field> fields = cache.get(clazz);
+            if (fields == null) return SerializerRegistry.serializer(clazz).apply(item);
+
+            NbtCompound compound = new NbtCompound();
+            for (Map.Entry<String, java.lang.reflect.Field> entry : fields.entrySet()) {
+                java.lang.reflect.Field field = entry.getValue();
+                Object data = field.get(item);
+                if (data == null) continue;
+
+                if (List.class.isAssignableFrom(field.getType())) {
+                    NbtList list = new NbtList();
+                    for (Object element : (List<?>) data) {
+                        list.add(serialize(element(field), element));
+                    }
+                    compound.put(entry.getKey(), list);
+                } else {
+                    compound.put(entry.getKey(), serialize(field.getType(), data));
+                }
+            }
+            return compound;
+        }
+
+        Object deserialize(Class<?> clazz, NbtElement value) throws ReflectiveOperationException {
+            Map<String, java.lang.reflect.Field> fields = cache.get(clazz);
+            if (fields == null) return SerializerRegistry.deserializer(clazz).apply(value);
+
+            NbtCompound compound = (NbtCompound) value;
+            Object item = clazz.getDeclaredConstructor().newInstance();
+            for (Map.Entry<String, java.lang.reflect.Field> entry : fields.entrySet()) {
+                java.lang.reflect.Field field = entry.getValue();
+                if (!compound.contains(entry.getKey())) continue;
+
+                if (List.class.isAssignableFrom(field.getType())) {
+                    NbtList list = (NbtList) compound.get(entry.getKey());
+                    ArrayList<Object> data = new ArrayList<>(list.size());
+                    for (int i = 0; i < list.size(); i++) {
+                        data.add(deserialize(element(field), list.get(i)));
+                    }
+                    field.set(item, data);
+                } else {
+                    field.set(item, deserialize(field.getType(), compound.get(entry.getKey())));
+                }
+            }
+            return item;
+        }
+
+        private static Class<?> element(java.lang.reflect.Field field) {
+            return (Class<?>)
+                    ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package io.icker.factions.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import net.minecraft.nbt.NbtByteArray;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtInt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks the {@link Journal} record framing on its own: records replay in order, and a corrupt or
+ * torn record is cut off together with everything after it. Then, through {@link NbtStorage} and
+ * {@link WriteBehind}, that a journal left behind by a crash between writing a snapshot and
+ * clearing the journal replays over that snapshot to the same state, and that queued changes are
+ * journaled before the snapshot that covers them.
+ */
+class JournalTest {
+    // The store WriteBehind snapshots; registered once, so shared by every test
+    private static final LinkedHashMap<String, Sample> LIVE = new LinkedHashMap<>();
+
+    @TempDir Path dir;
+
+    @Name("JournalSample")
+    static class Sample {
+        @Field("Name")
+        String name;
+
+        @Field("Power")
+        int power;
+
+        Sample() {}
+
+        Sample(String name, int power) {
+            this.name = name;
+            this.power = power;
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + power;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        LIVE.clear();
+        Database.setStorage(new NbtStorage(dir.toFile()));
+        Database.loadItems(Sample.class, sample -> sample.name);
+        WriteBehind.register(
+                Sample.class, () -> new ArrayList<>(LIVE.values()), sample -> sample.name);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.getStorage().close();
+    }
+
+    @Test
+    void replaysRecordsInOrder() throws IOException {
+        Path path = dir.resolve("test.journal");
+        Journal journal = new Journal(path);
+        journal.append(
+                List.of(
+                        Journal.put("a", power(1)),
+                        Journal.put("b", power(2)),
+                        Journal.remove("a"),
+                        Journal.put("b", power(3))));
+        journal.append(List.of(Journal.put("a", power(4))));
+        journal.close();
+
+        assertEquals(List.of("a=1", "b=2", "a=removed", "b=3", "a=4"), replay(path));
+    }
+
+    @Test
+    void corruptRecordIsCutOff() throws IOException {
+        byte[] first = Journal.put("a", power(1));
+        byte[] second = Journal.put("b", power(2));
+        byte[] third = Journal.put("c", power(3));
+        // a flipped bit in the payload fails the CRC
+        second[second.length - 2] ^= 1;
+
+        Path path = dir.resolve("test.journal");
+        Files.write(path, concat(first, second, third));
+        assertEquals(List.of("a=1"), replay(path));
+        assertEquals(first.length, Files.size(path));
+
+        // records appended after the cut are not hidden behind it
+        Journal journal = new Journal(path);
+        journal.append(List.of(Journal.remove("a")));
+        journal.close();
+        assertEquals(List.of("a=1", "a=removed"), replay(path));
+    }
+
+    @Test
+    void tornRecordIsCutOff() throws IOException {
+        byte[] first = Journal.put("a", power(1));
+        byte[] second = Journal.put("b", power(2));
+        Path path = dir.resolve("test.journal");
+
+        // torn anywhere, in the header or in the payload
+        for (int length = 1; length < second.length; length++) {
+            Files.write(path, concat(first, Arrays.copyOf(second, length)));
+            assertEquals(List.of("a=1"), replay(path), "torn after " + length + " bytes");
+            assertEquals(first.length, Files.size(path));
+        }
+    }
+
+    @Test
+    void dueBySizeOrAge() throws IOException {
+        long now = System.currentTimeMillis();
+        Journal journal = new Journal(dir.resolve("test.journal"));
+        assertFalse(journal.isDue(now + Journal.MAX_AGE_MILLIS));
+
+        journal.append(List.of(Journal.put("a", power(1))));
+        long appended = System.currentTimeMillis();
+        assertFalse(journal.isDue(appended));
+        assertTrue(journal.isDue(appended + Journal.MAX_AGE_MILLIS));
+
+        journal.reset();
+        assertFalse(journal.isDue(now + Journal.MAX_AGE_MILLIS));
+
+        NbtCompound large = new NbtCompound();
+        large.put("Data", new NbtByteArray(new byte[(int) Journal.MAX_BYTES]));
+        journal.append(List.of(Journal.put("a", large)));
+        assertTrue(journal.isDue(System.currentTimeMillis()));
+        journal.close();
+
+        // a journal reopened at that size is still due
+        assertTrue(new Journal(dir.resolve("test.journal")).isDue(System.currentTimeMillis()));
+    }
+
+    @Test
+    void staleJournalReplaysToSnapshot() throws IOException {
+        NbtStorage storage = (NbtStorage) Database.getStorage();
+        storage.write(Sample.class, snapshot(new Sample("a", 1)));
+        storage.apply(Sample.class, List.of(), items(new Sample("a", 2), new Sample("b", 1)));
+        Path journal = dir.resolve("journalsample.journal");
+        byte[] records = Files.readAllBytes(journal);
+
+        // compacted, then the crash leaves the journal as it was
+        storage.write(Sample.class, snapshot(new Sample("a", 2), new Sample("b", 1)));
+        storage.close();
+        Files.write(journal, records);
+        assertEquals(Set.of("a=2", "b=1"), reload());
+
+        // changes journaled after the snapshot still apply on top
+        storage = new NbtStorage(dir.toFile());
+        storage.load(Sample.class);
+        storage.apply(Sample.class, List.of("b"), items(new Sample("a", 3)));
+        storage.close();
+        assertEquals(Set.of("a=3"), reload());
+    }
+
+    @Test
+    void changesJournaledBeforeSnapshot() throws IOException {
+        Path journal = dir.resolve("journalsample.journal");
+
+        put(new Sample("a", 1));
+        WriteBehind.flush(Sample.class);
+        assertTrue(Files.size(journal) > 0);
+        assertEquals(Set.of("a=1"), reload());
+
+        // the change goes to the journal first, then the snapshot covering it clears the journal
+        put(new Sample("a", 2));
+        put(new Sample("b", 1));
+        WriteBehind.markDirty(Sample.class);
+        WriteBehind.flush(Sample.class);
+        assertEquals(0, Files.size(journal));
+        assertEquals(Set.of("a=2", "b=1"), reload());
+
+        LIVE.remove("b");
+        WriteBehind.remove(Sample.class, "b");
+        WriteBehind.flush(Sample.class);
+        assertTrue(Files.size(journal) > 0);
+        assertEquals(Set.of("a=2"), reload());
+    }
+
+    private static void put(Sample sample) {
+        LIVE.put(sample.name, sample);
+        WriteBehind.put(Sample.class, sample);
+    }
+
+    private static NbtCompound power(int power) {
+        NbtCompound compound = new NbtCompound();
+        compound.put("Power", NbtInt.of(power));
+        return compound;
+    }
+
+    private static NbtCompound snapshot(Sample... items) {
+        return Database.getStorage().snapshot(Sample.class, List.of(items));
+    }
+
+    private static Map<String, NbtCompound> items(Sample... items) {
+        Map<String, NbtCompound> changed = new LinkedHashMap<>();
+        for (Sample item : items) {
+            changed.put(item.name, Database.toCompound(Sample.class, item));
+        }
+        return changed;
+    }
+
+    private Set<String> reload() {
+        NbtStorage storage = new NbtStorage(dir.toFile());
+        try {
+            return describe(storage.load(Sample.class));
+        } finally {
+            storage.close();
+        }
+    }
+
+    private static List<String> replay(Path path) throws IOException {
+        List<String> applied = new ArrayList<>();
+        Journal.replay(
+                path,
+                (key, value) ->
+                        applied.add(
+                                key
+                                        + "="
+                                        + (value == null
+                                                ? "removed"
+                                                : ((NbtInt) value.get("Power")).intValue())));
+        return applied;
+    }
+
+    private static byte[] concat(byte[]... parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static Set<String> describe(Collection<Sample> items) {
+        Set<String> described = new HashSet<>();
+        for (Sample item : items) {
+            described.add(item.toString());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,212 @@
+package io.icker.factions.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Runs {@link SqlStorage} against a real H2 database in a temporary directory, reopening it to
+ * check what was written, and migrates a store from {@link NbtStorage} to it and back through
+ * {@link WriteBehind#migrate}.
+ */
+class SqlStorageTest {
+    // The store WriteBehind snapshots; registered once, so shared by every test
+    private static final LinkedHashMap<String, Sample> LIVE = new LinkedHashMap<>();
+
+    @TempDir Path dir;
+
+    @Name("SqlSample")
+    static class Sample {
+        @Field("Name")
+        String name;
+
+        @Field("Power")
+        int power;
+
+        @Field("Leader")
+        String leader;
+
+        Sample() {}
+
+        Sample(String name, int power, String leader) {
+            this.name = name;
+            this.power = power;
+            this.leader = leader;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + power + " " + leader;
+        }
+    }
+
+    static {
+        Database.registerIndex(Sample.class, "Power");
+        Database.registerIndex(Sample.class, "Leader", "Power");
+    }
+
+    @BeforeEach
+    void setUp() {
+        LIVE.clear();
+        Database.setStorage(new NbtStorage(dir.resolve("nbt").toFile()));
+        Database.loadItems(Sample.class, sample -> sample.name);
+        WriteBehind.register(
+                Sample.class, () -> new ArrayList<>(LIVE.values()), sample -> sample.name);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.getStorage().close();
+    }
+
+    @Test
+    void writeAndReload() throws IOException {
+        List<Sample> items =
+                List.of(
+                        new Sample("a", 1, "alice"),
+                        new Sample("b", 2, null),
+                        new Sample("c", -3, "carol"));
+
+        SqlStorage storage = new SqlStorage(dir.toFile());
+        storage.write(Sample.class, storage.snapshot(Sample.class, items));
+        storage.close();
+
+        assertEquals(describe(items), reload(dir.toFile()));
+    }
+
+    @Test
+    void applyChanges() throws IOException {
+        Sample a = new Sample("a", 1, "alice");
+        Sample b = new Sample("b", 2, "bob");
+        SqlStorage storage = new SqlStorage(dir.toFile());
+        storage.write(Sample.class, storage.snapshot(Sample.class, List.of(a, b)));
+
+        Sample changed = new Sample("b", 20, "bob");
+        Sample added = new Sample("d", 4, "dave");
+        storage.apply(
+                Sample.class,
+                List.of("a", "missing"),
+                Map.of(
+                        "b", Database.toCompound(Sample.class, changed),
+                        "d", Database.toCompound(Sample.class, added)));
+        storage.close();
+        assertEquals(describe(List.of(changed, added)), reload(dir.toFile()));
+
+        // a snapshot replaces every row
+        storage = new SqlStorage(dir.toFile());
+        storage.write(Sample.class, storage.snapshot(Sample.class, List.of(a)));
+        storage.close();
+        assertEquals(describe(List.of(a)), reload(dir.toFile()));
+    }
+
+    @Test
+    void indexedColumns() throws IOException, SQLException {
+        SqlStorage storage = new SqlStorage(dir.toFile());
+        storage.write(
+                Sample.class,
+                storage.snapshot(
+                        Sample.class,
+                        List.of(new Sample("a", 1, "alice"), new Sample("b", 2, "bob"))));
+        storage.close();
+
+        String url = "jdbc:h2:file:" + new File(dir.toFile(), "factions").getAbsolutePath();
+        try (Connection connection = new org.h2.Driver().connect(url, new Properties());
+                Statement statement = connection.createStatement()) {
+            try (ResultSet rows =
+                    statement.executeQuery(
+                            "SELECT \"Power\", \"Leader\" FROM \"sqlsample\" WHERE \"Key\" = 'b'")) {
+                assertTrue(rows.next());
+                assertEquals(2, rows.getInt(1));
+                assertEquals("bob", rows.getString(2));
+            }
+
+            Set<String> indexes = new HashSet<>();
+            try (ResultSet rows =
+                    statement.executeQuery(
+                            "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES"
+                                    + " WHERE TABLE_NAME = 'sqlsample'")) {
+                while (rows.next()) indexes.add(rows.getString(1));
+            }
+            assertTrue(indexes.contains("sqlsample_Power"), indexes.toString());
+            assertTrue(indexes.contains("sqlsample_Leader_Power"), indexes.toString());
+        }
+    }
+
+    @Test
+    void migrateNbtToH2AndBack() throws IOException {
+        put(new Sample("a", 1, "alice"));
+        put(new Sample("b", 2, "bob"));
+        put(new Sample("c", 3, "carol"));
+        WriteBehind.flush(Sample.class);
+        Set<String> onNbt = describe(LIVE.values());
+
+        // changes still queued when migrating go to the new backend only
+        LIVE.remove("a");
+        WriteBehind.remove(Sample.class, "a");
+        put(new Sample("b", 20, "bob"));
+
+        SqlStorage sql = new SqlStorage(dir.resolve("h2").toFile());
+        WriteBehind.migrate(sql);
+        assertSame(sql, Database.getStorage());
+        assertEquals(describe(LIVE.values()), describe(sql.load(Sample.class)));
+
+        // later changes are written to the new backend
+        put(new Sample("d", 4, "dave"));
+        WriteBehind.flush(Sample.class);
+
+        NbtStorage back = new NbtStorage(dir.resolve("back").toFile());
+        WriteBehind.migrate(back);
+        assertSame(back, Database.getStorage());
+
+        assertEquals(describe(LIVE.values()), reload(dir.resolve("h2").toFile()));
+        NbtStorage reopened = new NbtStorage(dir.resolve("back").toFile());
+        assertEquals(describe(LIVE.values()), describe(reopened.load(Sample.class)));
+        reopened.close();
+        NbtStorage original = new NbtStorage(dir.resolve("nbt").toFile());
+        assertEquals(onNbt, describe(original.load(Sample.class)));
+        original.close();
+    }
+
+    private static void put(Sample sample) {
+        LIVE.put(sample.name, sample);
+        WriteBehind.put(Sample.class, sample);
+    }
+
+    private static Set<String> reload(File path) throws IOException {
+        SqlStorage storage = new SqlStorage(path);
+        try {
+            return describe(storage.load(Sample.class));
+        } finally {
+            storage.close();
+        }
+    }
+
+    private static Set<String> describe(Collection<Sample> items) {
+        Set<String> described = new HashSet<>();
+        for (Sample item : items) {
+            described.add(item.toString());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,17 @@
+package io.icker.factions.database;
+
+import java.io.File;
+
+/** Points {@link Database} at NBT files in a test's directory, for tests outside this package. */
+public final class TestDatabase {
+    private TestDatabase() {}
+
+    /** Switches to NBT files in {@code dir}, closing the previous backend. */
+    public static void useNbt(File dir) {
+        Database.setStorage(new NbtStorage(dir));
+    }
+
+    public static void close() {
+        Database.getStorage().close();
+    }
+}
@@ -0,0 +1,57 @@
+package io.icker.factions.util;
+
+import com.flowpowered.math.vector.Vector2i;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times {@link ClaimTracer} against the {@link ClaimGrouper} outline path on large territories.
+ * Run with {@code ./gradlew benchmarkClaimTracer}, optionally passing {@code --args="<size>
+ * <density>"} for a square of {@code size} chunks with that share of them claimed. The first
+ * rounds warm up the JIT; compare the later ones.
+ */
+public final class ClaimTracerBenchmark {
+    private static final int ROUNDS = 5;
+
+    private ClaimTracerBenchmark() {}
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        double density = args.length > 1 ? Double.parseDouble(args[1]) : 0.97;
+
+        Random random = new Random(1);
+        Set<Vector2i> claims = new HashSet<>();
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                if (random.nextDouble() < density) claims.add(new Vector2i(x, z));
+            }
+        }
+        System.out.printf("%d claims in a %dx%d square%n", claims.size(), size, size);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int grouped = 0;
+            for (Map<Vector2i, Vector2i[]> group :
+                    ClaimGrouper.convertClaimsToLineSegmentGroups(claims)) {
+                grouped += ClaimGrouper.convertLineSegmentsToOutlines(group).size();
+            }
+            long middle = System.nanoTime();
+            ClaimTracer tracer = new ClaimTracer(claims);
+            long end = System.nanoTime();
+
+            System.out.printf(
+                    "ClaimGrouper %d ms (%d rings), ClaimTracer %d ms (%d groups, %d -> %d"
+                            + " corners)%n",
+                    TimeUnit.NANOSECONDS.toMillis(middle - start),
+                    grouped,
+                    TimeUnit.NANOSECONDS.toMillis(end - middle),
+                    tracer.getOutlines().size(),
+                    tracer.getEdges(),
+                    tracer.getVertices());
+        }
+    }
+}
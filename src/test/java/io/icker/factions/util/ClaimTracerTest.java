@@ -0,0 +1,222 @@
+package io.icker.factions.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.flowpowered.math.vector.Vector2i;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares {@link ClaimTracer} with the {@link ClaimGrouper} methods it replaced. Outlines must
+ * match {@link ClaimGrouper#convertLineSegmentsToOutlines} up to the corner each ring starts at.
+ * Borders are joined along other bridges than those of {@link
+ * ClaimGrouper#convertClaimsToLineSegmentGroupsWithoutHoles}, so they are compared by the chunk
+ * edges they outline instead: every edge on a border is drawn an odd number of times, and every
+ * bridge an even number.
+ */
+class ClaimTracerTest {
+    private static final int RANDOM_SETS = 1000;
+
+    @Test
+    void singleClaim() {
+        check(claims(new int[][] {{0, 0}}));
+    }
+
+    @Test
+    void diagonalPinch() {
+        check(claims(new int[][] {{0, 0}, {1, 1}}));
+        check(claims(new int[][] {{0, 1}, {1, 0}}));
+        check(claims(new int[][] {{0, 0}, {1, 1}, {2, 0}, {1, -1}}));
+    }
+
+    @Test
+    void holesPinchedTogether() {
+        // a 4x4 square with two holes touching at a corner
+        Set<Vector2i> claims = square(0, 0, 4);
+        claims.remove(new Vector2i(1, 1));
+        claims.remove(new Vector2i(2, 2));
+        check(claims);
+    }
+
+    @Test
+    void holePinchedToOutside() {
+        Set<Vector2i> claims = square(0, 0, 3);
+        claims.remove(new Vector2i(1, 1));
+        claims.remove(new Vector2i(2, 2));
+        check(claims);
+    }
+
+    @Test
+    void nestedHoles() {
+        // a ring around a ring around a claim with a hole in it
+        Set<Vector2i> claims = square(-5, -5, 11);
+        claims.removeAll(square(-4, -4, 9));
+        claims.addAll(square(-3, -3, 7));
+        claims.removeAll(square(-2, -2, 5));
+        claims.addAll(square(-1, -1, 3));
+        claims.remove(new Vector2i(0, 0));
+        check(claims);
+    }
+
+    @Test
+    void manyHolesUnderOneSegment() {
+        Set<Vector2i> claims = square(0, 0, 21);
+        for (int x = 1; x < 20; x += 2) {
+            for (int z = 1; z < 20; z += 2) {
+                claims.remove(new Vector2i(x, z));
+            }
+        }
+        check(claims);
+    }
+
+    @Test
+    void randomClaims() {
+        Random random = new Random(42);
+        for (int i = 0; i < RANDOM_SETS; i++) {
+            int size = 2 + random.nextInt(30);
+            double density = 0.3 + random.nextDouble() * 0.6;
+            int offsetX = random.nextInt(41) - 20;
+            int offsetZ = random.nextInt(41) - 20;
+
+            Set<Vector2i> claims = new HashSet<>();
+            for (int x = 0; x < size; x++) {
+                for (int z = 0; z < size; z++) {
+                    if (random.nextDouble() < density) {
+                        claims.add(new Vector2i(x + offsetX, z + offsetZ));
+                    }
+                }
+            }
+            if (!claims.isEmpty()) check(claims);
+        }
+    }
+
+    @Test
+    void largerCells() {
+        Set<Vector2i> claims = square(-2, -2, 5);
+        claims.remove(new Vector2i(0, 0));
+
+        List<List<List<Vector2i>>> chunks = new ClaimTracer(claims).getOutlines();
+        List<List<List<Vector2i>>> regions = new ClaimTracer(claims, 64).getOutlines();
+        assertEquals(chunks.size(), regions.size());
+        for (int group = 0; group < chunks.size(); group++) {
+            for (int ring = 0; ring < chunks.get(group).size(); ring++) {
+                List<Vector2i> expected = new ArrayList<>();
+                for (Vector2i corner : chunks.get(group).get(ring)) {
+                    expected.add(corner.mul(4));
+                }
+                assertEquals(expected, regions.get(group).get(ring));
+            }
+        }
+    }
+
+    private static void check(Set<Vector2i> claims) {
+        ClaimTracer tracer = new ClaimTracer(claims);
+
+        List<String> expected = new ArrayList<>();
+        Set<String> edges = new HashSet<>();
+        for (Map<Vector2i, Vector2i[]> group :
+                ClaimGrouper.convertClaimsToLineSegmentGroups(claims)) {
+            // before tracing, which uses the segments up
+            group.forEach(
+                    (start, ends) -> {
+                        for (Vector2i end : ends) {
+                            edges.add(edge(start, end));
+                        }
+                    });
+            expected.add(describe(ClaimGrouper.convertLineSegmentsToOutlines(group)));
+        }
+        List<String> actual = new ArrayList<>();
+        for (List<List<Vector2i>> group : tracer.getOutlines()) {
+            actual.add(describe(group));
+        }
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual, "outlines of " + claims);
+
+        assertEquals(
+                tracer.getOutlines().size(),
+                tracer.getBorders().size(),
+                "one border per group of " + claims);
+        Map<String, Integer> drawn = new HashMap<>();
+        for (List<Vector2i> border : tracer.getBorders()) {
+            for (int i = 0; i < border.size(); i++) {
+                Vector2i start = border.get(i);
+                Vector2i end = border.get((i + 1) % border.size());
+                assertEquals(
+                        true,
+                        start.getX() == end.getX() || start.getY() == end.getY(),
+                        "straight border sides of " + claims);
+                Vector2i step = new Vector2i(
+                        Integer.signum(end.getX() - start.getX()) * 16,
+                        Integer.signum(end.getY() - start.getY()) * 16);
+                for (Vector2i point = start; !point.equals(end); point = point.add(step)) {
+                    drawn.merge(edge(point, point.add(step)), 1, Integer::sum);
+                }
+            }
+        }
+        Set<String> odd = new HashSet<>();
+        drawn.forEach(
+                (edge, count) -> {
+                    if (count % 2 == 1) odd.add(edge);
+                });
+        assertEquals(edges, odd, "border edges of " + claims);
+    }
+
+    // The groups' rings, each starting at its top left corner, with the holes in a fixed order
+    private static String describe(List<List<Vector2i>> group) {
+        List<String> holes = new ArrayList<>();
+        for (int i = 1; i < group.size(); i++) {
+            holes.add(fromTopLeft(group.get(i)).toString());
+        }
+        holes.sort(null);
+        return fromTopLeft(group.get(0)) + " " + holes;
+    }
+
+    private static List<Vector2i> fromTopLeft(List<Vector2i> ring) {
+        int first = 0;
+        for (int i = 1; i < ring.size(); i++) {
+            Vector2i point = ring.get(i);
+            Vector2i best = ring.get(first);
+            if (point.getY() < best.getY()
+                    || (point.getY() == best.getY() && point.getX() < best.getX())) {
+                first = i;
+            }
+        }
+        List<Vector2i> rotated = new ArrayList<>();
+        for (int i = 0; i < ring.size(); i++) {
+            rotated.add(ring.get((first + i) % ring.size()));
+        }
+        return rotated;
+    }
+
+    private static String edge(Vector2i a, Vector2i b) {
+        boolean ordered = a.getX() < b.getX() || (a.getX() == b.getX() && a.getY() < b.getY());
+        return ordered ? a + "-" + b : b + "-" + a;
+    }
+
+    private static Set<Vector2i> claims(int[][] points) {
+        Set<Vector2i> claims = new HashSet<>();
+        for (int[] point : points) {
+            claims.add(new Vector2i(point[0], point[1]));
+        }
+        return claims;
+    }
+
+    private static Set<Vector2i> square(int x, int z, int size) {
+        Set<Vector2i> claims = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                claims.add(new Vector2i(x + i, z + j));
+            }
+        }
+        return claims;
+    }
+}
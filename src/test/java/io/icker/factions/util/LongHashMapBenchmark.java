@@ -0,0 +1,74 @@
+package io.icker.factions.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the claim lookup of {@code Claim.get}, a {@link LongHashMap} keyed by {@link ChunkKey},
+ * against the {@code String.format} key into a {@link HashMap} it replaced. Run with {@code
+ * ./gradlew benchmarkLongHashMap}, optionally passing {@code --args="<claims> <lookups>"}. About
+ * half of the looked up chunks are claimed. The first rounds warm up the JIT; compare the later
+ * ones.
+ */
+public final class LongHashMapBenchmark {
+    private static final int ROUNDS = 5;
+    private static final String LEVEL = "minecraft:overworld";
+
+    private LongHashMapBenchmark() {}
+
+    public static void main(String[] args) {
+        int claims = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        // claims spread over a square twice their number, around the origin
+        int side = (int) Math.ceil(Math.sqrt(claims * 2.0));
+        Random random = new Random(1);
+        Map<String, Object> byString = new HashMap<>();
+        LongHashMap<Object> byLong = new LongHashMap<>();
+        while (byLong.size() < claims) {
+            int x = random.nextInt(side) - side / 2;
+            int z = random.nextInt(side) - side / 2;
+            Object claim = new Object();
+            byString.put(String.format("%s-%d-%d", LEVEL, x, z), claim);
+            byLong.put(ChunkKey.pack(x, z), claim);
+        }
+
+        int[] xs = new int[lookups];
+        int[] zs = new int[lookups];
+        for (int i = 0; i < lookups; i++) {
+            xs[i] = random.nextInt(side) - side / 2;
+            zs[i] = random.nextInt(side) - side / 2;
+        }
+        System.out.printf("%d claims, %d lookups in a %dx%d square%n", claims, lookups, side, side);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int stringHits = 0;
+            for (int i = 0; i < lookups; i++) {
+                if (byString.get(String.format("%s-%d-%d", LEVEL, xs[i], zs[i])) != null) {
+                    stringHits++;
+                }
+            }
+            long middle = System.nanoTime();
+            int longHits = 0;
+            for (int i = 0; i < lookups; i++) {
+                if (byLong.get(ChunkKey.pack(xs[i], zs[i])) != null) longHits++;
+            }
+            long end = System.nanoTime();
+
+            if (stringHits != longHits) {
+                throw new IllegalStateException(stringHits + " != " + longHits + " hits");
+            }
+            System.out.printf(
+                    "HashMap<String> %d ms (%d ns per lookup), LongHashMap %d ms (%d ns per"
+                            + " lookup), %d hits%n",
+                    TimeUnit.NANOSECONDS.toMillis(middle - start),
+                    (middle - start) / lookups,
+                    TimeUnit.NANOSECONDS.toMillis(end - middle),
+                    (end - middle) / lookups,
+                    longHits);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package io.icker.factions.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks {@link LongHashMap} against {@link HashMap}, with keys chosen to land in the same probe
+ * chain so that wrap-around and backward-shift deletion are exercised, not just the happy path.
+ */
+class LongHashMapTest {
+    // Table size of a map expecting 8 entries, kept at most half full
+    private static final int CAPACITY = 16;
+
+    @Test
+    void putGetRemove() {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertEquals(null, map.put(1, "a"));
+        assertEquals("a", map.put(1, "b"));
+        assertEquals("b", map.get(1));
+        assertEquals(1, map.size());
+        assertEquals(true, map.containsKey(1));
+        assertEquals(false, map.containsKey(2));
+
+        assertEquals(null, map.remove(2));
+        assertEquals("b", map.remove(1));
+        assertEquals(null, map.get(1));
+        assertEquals(true, map.isEmpty());
+    }
+
+    @Test
+    void rejectsNullValues() {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void negativeAndExtremeChunkKeys() {
+        LongHashMap<String> map = new LongHashMap<>();
+        // world border chunks, and the ends of the int range
+        int[] coordinates = {
+            0, 1, -1, 1_875_000, -1_875_000, Integer.MIN_VALUE, Integer.MAX_VALUE
+        };
+        for (int x : coordinates) {
+            for (int z : coordinates) {
+                long key = ChunkKey.pack(x, z);
+                assertEquals(x, ChunkKey.x(key));
+                assertEquals(z, ChunkKey.z(key));
+                assertEquals(null, map.put(key, x + "," + z), "unique key for " + x + "," + z);
+            }
+        }
+        assertEquals(coordinates.length * coordinates.length, map.size());
+        for (int x : coordinates) {
+            for (int z : coordinates) {
+                assertEquals(x + "," + z, map.get(ChunkKey.pack(x, z)));
+            }
+        }
+        // -1 in z must not sign-extend into x
+        assertEquals("0,-1", map.get(ChunkKey.pack(0, -1)));
+        assertEquals("-1,0", map.get(ChunkKey.pack(-1, 0)));
+    }
+
+    @Test
+    void collidingKeysSurviveRemoval() {
+        // Two probe chains interleaved across the end of the table: keys of the second one sit in
+        // their own slot inside the wrapped first one, and must not be shifted back past it.
+        List<Long> last = colliding(CAPACITY - 2, 3);
+        List<Long> first = colliding(0, 2);
+        List<Long> keys = List.of(last.get(0), last.get(1), first.get(0), last.get(2), first.get(1));
+
+        for (long removed : keys) {
+            LongHashMap<Long> map = new LongHashMap<>(CAPACITY / 2);
+            for (long key : keys) {
+                map.put(key, key);
+            }
+
+            assertEquals(removed, (long) map.remove(removed));
+            for (long key : keys) {
+                assertEquals(key == removed ? null : key, map.get(key), "after removing " + removed);
+            }
+            assertEquals(keys.size() - 1, map.size());
+
+            // the freed slot is reused without duplicating a key
+            map.put(removed, removed);
+            map.put(keys.get(4), keys.get(4));
+            assertEquals(keys.size(), map.size());
+        }
+    }
+
+    @Test
+    void resizeKeepsEntries() {
+        LongHashMap<Integer> map = new LongHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            map.put(ChunkKey.pack(i % 100 - 50, i / 100 - 50), i);
+        }
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, (int) map.get(ChunkKey.pack(i % 100 - 50, i / 100 - 50)));
+        }
+
+        map.ensureCapacity(100_000);
+        assertEquals(10_000, map.size());
+        assertEquals(42, (int) map.get(ChunkKey.pack(-8, -50)));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(null, map.get(ChunkKey.pack(-8, -50)));
+        map.put(7, 7);
+        assertEquals(7, (int) map.get(7));
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        LongHashMap<Integer> map = new LongHashMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // a small key range keeps the table dense and the chains long
+            long key = ChunkKey.pack(random.nextInt(40) - 20, random.nextInt(40) - 20);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertEquals(expected.put(key, i), map.put(key, i));
+                case 2 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+
+            if (i % 50_000 == 0) {
+                int bound = i;
+                assertEquals(
+                        expected.values().removeIf(value -> value < bound / 2),
+                        map.removeIf(value -> value < bound / 2));
+            }
+        }
+
+        Map<Long, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+
+        List<Integer> values = map.values();
+        values.sort(null);
+        List<Integer> expectedValues = new ArrayList<>(expected.values());
+        expectedValues.sort(null);
+        assertEquals(expectedValues, values);
+    }
+
+    private static List<Long> colliding(int slot, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 0; keys.size() < count; key++) {
+            if ((LongHashMap.mix(key) & (CAPACITY - 1)) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,332 @@
+package io.icker.factions.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.flowpowered.math.vector.Vector2i;
+
+import io.icker.factions.FactionsMod;
+import io.icker.factions.api.events.FactionEvents;
+import io.icker.factions.api.persistents.Claim;
+import io.icker.factions.api.persistents.Faction;
+import io.icker.factions.api.persistents.Home;
+import io.icker.factions.config.Config;
+
+import net.minecraft.util.Formatting;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Drives {@link MarkerSync} tick by tick with a fake map, holding back the background outlines
+ * where the order matters: a territory computed from claims that have changed since is never
+ * published, nor one whose claims were all removed while it was being computed. Also checks when
+ * changes settle, that faction details only restyle the cached territories that aren't recomputed
+ * anyway, and that the per-tick budget carries the rest over.
+ */
+class MarkerSyncTest {
+    private static final String OVERWORLD = "minecraft:overworld";
+    private static final String NETHER = "minecraft:the_nether";
+    private static final int DELAY = 5;
+    private static final int MAX_DELAY = 20;
+
+    private final Target target = new Target();
+    private final List<Faction> factions = new ArrayList<>();
+    private Config.MapConfig maps;
+    private CountDownLatch held;
+    private long ticks;
+
+    // Records what the map was asked to do
+    private static class Target implements MarkerSync.Target {
+        final List<Territory> updates = new ArrayList<>();
+        final List<String> removes = new ArrayList<>();
+
+        @Override
+        public void clear() {}
+
+        @Override
+        public void update(Faction faction, Territory territory) {
+            updates.add(territory);
+        }
+
+        @Override
+        public void remove(UUID faction, String level) {
+            removes.add(faction + " " + level);
+        }
+
+        @Override
+        public void setHome(Faction faction, Home home) {}
+    }
+
+    @BeforeEach
+    void setUp() {
+        maps = FactionsMod.CONFIG.MAPS;
+        FactionsMod.CONFIG.MAPS = new Config.MapConfig();
+        FactionsMod.CONFIG.MAPS.UPDATE_DELAY_TICKS = DELAY;
+        FactionsMod.CONFIG.MAPS.MAX_UPDATE_DELAY_TICKS = MAX_DELAY;
+        FactionsMod.CONFIG.MAPS.REGION_OUTLINE_CHUNKS = 0;
+
+        MarkerSync.reset();
+        MarkerSync.rebuild(target);
+        tick();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release();
+        factions.forEach(Faction::remove);
+        await();
+        MarkerSync.reset();
+        FactionsMod.CONFIG.MAPS = maps;
+    }
+
+    @Test
+    void staleResultIsDropped() throws InterruptedException {
+        Faction faction = faction("Stale");
+        claim(faction, 0, 0);
+        hold();
+        advance(DELAY);
+        assertEquals(1, MarkerSync.getComputing());
+
+        // changed while the first outline waits; both are computed, only the second is published
+        claim(faction, 1, 0);
+        advance(DELAY);
+        assertEquals(2, MarkerSync.getComputing());
+        release();
+        await();
+        assertEquals(2, MarkerSync.getPublishing());
+        tick();
+
+        assertEquals(1, target.updates.size());
+        assertEquals(points(0, 0, 1, 0), target.updates.get(0).claims());
+        assertEquals(target.updates, MarkerSync.getTerritories(faction.getID()));
+        assertEquals(0, MarkerSync.getPublishing());
+    }
+
+    @Test
+    void removalDropsResultInFlight() throws InterruptedException {
+        Faction faction = faction("Removed");
+        Claim claim = claim(faction, 0, 0);
+        hold();
+        advance(DELAY);
+
+        claim.remove();
+        advance(DELAY);
+        release();
+        await();
+        tick();
+
+        assertEquals(List.of(), target.updates);
+        assertEquals(List.of(), target.removes);
+        assertEquals(List.of(), MarkerSync.getTerritories(faction.getID()));
+
+        // once published, removing the claims removes the markers
+        claim = claim(faction, 0, 0);
+        advance(DELAY);
+        await();
+        tick();
+        assertEquals(1, target.updates.size());
+
+        claim.remove();
+        advance(DELAY);
+        assertEquals(List.of(faction.getID() + " " + OVERWORLD), target.removes);
+        assertEquals(List.of(), MarkerSync.getTerritories(faction.getID()));
+        await();
+        tick();
+        assertEquals(1, target.updates.size());
+    }
+
+    @Test
+    void settlesAfterDelay() throws InterruptedException {
+        Faction faction = faction("Delay");
+        claim(faction, 0, 0);
+        advance(DELAY - 1);
+        assertEquals(1, MarkerSync.getWaiting());
+
+        // another change starts the delay over
+        claim(faction, 1, 0);
+        advance(DELAY - 1);
+        assertEquals(1, MarkerSync.getWaiting());
+        tick();
+        assertEquals(0, MarkerSync.getWaiting());
+
+        await();
+        assertEquals(List.of(), target.updates);
+        tick();
+        assertEquals(1, target.updates.size());
+        assertEquals(points(0, 0, 1, 0), target.updates.get(0).claims());
+    }
+
+    @Test
+    void settlesAfterMaxDelay() throws InterruptedException {
+        Faction faction = faction("Busy");
+        claim(faction, 0, 0);
+        for (int i = 1; i < MAX_DELAY; i++) {
+            tick();
+            claim(faction, i, 0);
+            assertEquals(1, MarkerSync.getWaiting());
+        }
+
+        // still changing every tick, but it has waited long enough
+        tick();
+        assertEquals(0, MarkerSync.getWaiting());
+        await();
+        tick();
+        assertEquals(1, target.updates.size());
+        assertEquals(MAX_DELAY, target.updates.get(0).claims().size());
+    }
+
+    @Test
+    void restyleSkipsRecomputedTerritories() throws InterruptedException {
+        Faction faction = faction("Restyled");
+        claim(faction, 0, 0);
+        claim(faction, 0, 0, NETHER);
+        advance(DELAY);
+        await();
+        tick();
+        assertEquals(2, target.updates.size());
+        Territory overworld = territory(OVERWORLD);
+        Territory nether = territory(NETHER);
+
+        // a restyle alone republishes the cached territories as they are
+        target.updates.clear();
+        FactionEvents.MODIFY.invoker().onModify(faction);
+        advance(DELAY - 1);
+        assertEquals(List.of(), target.updates);
+        tick();
+        assertEquals(0, MarkerSync.getComputing());
+        assertEquals(2, target.updates.size());
+        assertSame(overworld, territory(OVERWORLD));
+        assertSame(nether, territory(NETHER));
+
+        // with the claims changed too, the old overworld is not restyled on its way out
+        target.updates.clear();
+        FactionEvents.MODIFY.invoker().onModify(faction);
+        claim(faction, 1, 0);
+        advance(DELAY);
+        assertEquals(1, target.updates.size());
+        assertSame(nether, target.updates.get(0));
+
+        await();
+        tick();
+        assertEquals(2, target.updates.size());
+        Territory recomputed = target.updates.get(1);
+        assertEquals(OVERWORLD, recomputed.level());
+        assertEquals(points(0, 0, 1, 0), recomputed.claims());
+        assertTrue(recomputed.version() > overworld.version());
+    }
+
+    @Test
+    void budgetCarriesOver() throws InterruptedException {
+        FactionsMod.CONFIG.MAPS.UPDATES_PER_TICK = 2;
+        List<Faction> waiting = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Faction faction = faction("Budget" + i);
+            claim(faction, i, 0);
+            waiting.add(faction);
+        }
+
+        // two factions' outlines per tick, in the order they changed
+        hold();
+        advance(DELAY);
+        assertEquals(3, MarkerSync.getWaiting());
+        assertEquals(2, MarkerSync.getComputing());
+        tick();
+        assertEquals(1, MarkerSync.getWaiting());
+        tick();
+        assertEquals(0, MarkerSync.getWaiting());
+        assertEquals(5, MarkerSync.getComputing());
+
+        // and two factions' markers replaced per tick
+        release();
+        await();
+        tick();
+        assertEquals(2, target.updates.size());
+        tick();
+        tick();
+        assertEquals(5, target.updates.size());
+        for (int i = 0; i < waiting.size(); i++) {
+            assertEquals(waiting.get(i).getID(), target.updates.get(i).faction());
+        }
+    }
+
+    private Faction faction(String name) {
+        Faction faction = new Faction(name, "", "", Formatting.RED, false, 0);
+        Faction.add(faction);
+        factions.add(faction);
+        return faction;
+    }
+
+    private static Claim claim(Faction faction, int x, int z) {
+        return claim(faction, x, z, OVERWORLD);
+    }
+
+    private static Claim claim(Faction faction, int x, int z, String level) {
+        Claim claim = new Claim(x, z, level, faction.getID());
+        Claim.add(claim);
+        return claim;
+    }
+
+    // The latest territory the map was given for this dimension
+    private Territory territory(String level) {
+        for (int i = target.updates.size() - 1; i >= 0; i--) {
+            if (target.updates.get(i).level().equals(level)) return target.updates.get(i);
+        }
+        return null;
+    }
+
+    private static Set<Vector2i> points(int... coordinates) {
+        Set<Vector2i> points = new HashSet<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            points.add(new Vector2i(coordinates[i], coordinates[i + 1]));
+        }
+        return points;
+    }
+
+    private void tick() {
+        MarkerSync.tick(++ticks);
+    }
+
+    private void advance(int count) {
+        for (int i = 0; i < count; i++) {
+            tick();
+        }
+    }
+
+    // Keeps the worker busy until released, so outlines handed to it queue up
+    private void hold() {
+        CountDownLatch latch = new CountDownLatch(1);
+        held = latch;
+        MarkerSync.WORKER.execute(
+                () -> {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+    }
+
+    private void release() {
+        if (held != null) held.countDown();
+        held = null;
+    }
+
+    // Waits for the outlines handed to the worker
+    private static void await() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (MarkerSync.getComputing() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "outlines still computing");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.icker.factions.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.flowpowered.math.vector.Vector2i;
+
+import io.icker.factions.FactionsMod;
+import io.icker.factions.config.Config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Checks the region outlines of {@link Territory#compute}: claims on either side of zero fall in
+ * the regions {@link Math#floorDiv} puts them in, not the ones truncating division would, and only
+ * outlines of at least {@code regionOutlineMinVertices} corners get a region outline at all.
+ */
+class TerritoryTest {
+    private static final UUID FACTION = new UUID(1, 1);
+    private static final String LEVEL = "minecraft:overworld";
+
+    private Config.MapConfig maps;
+
+    @BeforeEach
+    void setUp() {
+        maps = FactionsMod.CONFIG.MAPS;
+        FactionsMod.CONFIG.MAPS = new Config.MapConfig();
+        FactionsMod.CONFIG.MAPS.REGION_OUTLINE_CHUNKS = 4;
+        FactionsMod.CONFIG.MAPS.REGION_OUTLINE_MIN_VERTICES = 0;
+    }
+
+    @AfterEach
+    void tearDown() {
+        FactionsMod.CONFIG.MAPS = maps;
+    }
+
+    @Test
+    void regionsOfNegativeChunks() {
+        Territory territory =
+                Territory.compute(
+                        FACTION, LEVEL, 7, claims(new int[][] {{-1, -1}, {0, 0}, {-5, 3}, {4, -4}}));
+
+        Territory region = territory.region();
+        assertNotNull(region);
+        assertEquals(
+                claims(new int[][] {{-1, -1}, {0, 0}, {-2, 0}, {1, -1}}), region.claims());
+        assertEquals(4, region.cellSize());
+        assertEquals(FACTION, region.faction());
+        assertEquals(LEVEL, region.level());
+        assertEquals(7, region.version());
+        assertNull(region.region());
+        assertEquals(1, territory.cellSize());
+    }
+
+    @Test
+    void regionOutlineInBlocks() {
+        Territory territory = Territory.compute(FACTION, LEVEL, 1, claims(new int[][] {{-3, -4}}));
+
+        List<List<List<Vector2i>>> polygons = territory.region().polygons();
+        assertEquals(1, polygons.size());
+        assertEquals(1, polygons.get(0).size());
+        assertEquals(
+                Set.of(
+                        new Vector2i(-64, -64),
+                        new Vector2i(0, -64),
+                        new Vector2i(0, 0),
+                        new Vector2i(-64, 0)),
+                new HashSet<>(polygons.get(0).get(0)));
+    }
+
+    @Test
+    void regionFillsGaps() {
+        // two claims a chunk apart, and a ring of claims around an unclaimed chunk
+        Set<Vector2i> claims = claims(new int[][] {{0, 0}, {2, 0}});
+        for (int x = 8; x < 11; x++) {
+            for (int z = 8; z < 11; z++) {
+                if (x != 9 || z != 9) claims.add(new Vector2i(x, z));
+            }
+        }
+        Territory territory = Territory.compute(FACTION, LEVEL, 1, claims);
+
+        assertEquals(3, territory.polygons().size());
+        int rings = 0;
+        for (List<List<Vector2i>> polygon : territory.polygons()) {
+            rings += polygon.size();
+        }
+        assertEquals(4, rings);
+
+        assertEquals(claims(new int[][] {{0, 0}, {2, 2}}), territory.region().claims());
+        assertEquals(2, territory.region().polygons().size());
+        for (List<List<Vector2i>> polygon : territory.region().polygons()) {
+            assertEquals(1, polygon.size());
+        }
+    }
+
+    @Test
+    void minVertices() {
+        // an L of three claims has six corners
+        Set<Vector2i> claims = claims(new int[][] {{0, 0}, {1, 0}, {0, 1}});
+        assertEquals(6, Territory.compute(FACTION, LEVEL, 1, claims).vertices());
+
+        FactionsMod.CONFIG.MAPS.REGION_OUTLINE_MIN_VERTICES = 6;
+        assertNotNull(Territory.compute(FACTION, LEVEL, 1, claims).region());
+
+        FactionsMod.CONFIG.MAPS.REGION_OUTLINE_MIN_VERTICES = 7;
+        assertNull(Territory.compute(FACTION, LEVEL, 1, claims).region());
+
+        // regions of a single chunk, or none, are never outlined
+        FactionsMod.CONFIG.MAPS.REGION_OUTLINE_MIN_VERTICES = 0;
+        FactionsMod.CONFIG.MAPS.REGION_OUTLINE_CHUNKS = 1;
+        assertNull(Territory.compute(FACTION, LEVEL, 1, claims).region());
+        FactionsMod.CONFIG.MAPS.REGION_OUTLINE_CHUNKS = 0;
+        assertNull(Territory.compute(FACTION, LEVEL, 1, claims).region());
+    }
+
+    private static Set<Vector2i> claims(int[][] points) {
+        Set<Vector2i> claims = new HashSet<>();
+        for (int[] point : points) {
+            claims.add(new Vector2i(point[0], point[1]));
+        }
+        return claims;
+    }
+}